@@ -0,0 +1,162 @@
+package com.crypto.cipher;
+
+import com.crypto.util.BitUtils;
+import com.crypto.util.datatypes.Block;
+import com.crypto.util.datatypes.Key;
+
+/**
+ * Сеть Фейстеля над 64-битным блоком из двух половин {@code int}. Аналог {@link FeistelNetwork}
+ * для раундовых функций над примитивами: расписание ключей — плоский {@code long[]} по
+ * {@code roundKeyLength} слов на раунд, и в раундах ничего не выделяется.
+ */
+public abstract class IntFeistelNetwork implements SymmetricCipher {
+
+  private final int roundKeyLength;
+  private long[] roundKeys;
+
+  /**
+   * @param roundKeyLength число слов расписания на один раунд
+   */
+  protected IntFeistelNetwork(int roundKeyLength) {
+    this.roundKeyLength = roundKeyLength;
+  }
+
+  /**
+   * Разворачивает ключ в плоское расписание по {@code roundKeyLength} слов на раунд.
+   */
+  protected abstract long[] expandKey(Key key);
+
+  /**
+   * Раундовая функция, применяемая к правой половине.
+   *
+   * @param offset индекс первого слова этого раунда в {@code roundKeys}
+   */
+  protected abstract int f(int half, long[] roundKeys, int offset);
+
+  protected long initialPermutation(long block) {
+    return block;
+  }
+
+  protected long finalPermutation(long block) {
+    return block;
+  }
+
+  @Override
+  public void setRoundKeys(Key key) {
+    long[] schedule = expandKey(key);
+    if (schedule.length == 0 || schedule.length % roundKeyLength != 0) {
+      throw new IllegalStateException("Key schedule length must be a multiple of " + roundKeyLength);
+    }
+    this.roundKeys = schedule;
+  }
+
+  @Override
+  public int getBlockSize() {
+    return 8;
+  }
+
+  @Override
+  public Block encryptBlock(Block block) {
+    byte[] result = new byte[8];
+    BitUtils.longToBigEndian(encrypt(BitUtils.bigEndianToLong(checkBlock(block), 0)), result, 0);
+    return new Block(result);
+  }
+
+  @Override
+  public Block decryptBlock(Block block) {
+    byte[] result = new byte[8];
+    BitUtils.longToBigEndian(decrypt(BitUtils.bigEndianToLong(checkBlock(block), 0)), result, 0);
+    return new Block(result);
+  }
+
+  @Override
+  public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    BitUtils.longToBigEndian(encrypt(BitUtils.bigEndianToLong(in, inOff)), out, outOff);
+  }
+
+  @Override
+  public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    BitUtils.longToBigEndian(decrypt(BitUtils.bigEndianToLong(in, inOff)), out, outOff);
+  }
+
+  @Override
+  public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    long[] schedule = requireRoundKeys();
+    int rounds = schedule.length / roundKeyLength;
+    for (int i = 0; i < count; i++, inOff += 8, outOff += 8) {
+      BitUtils.longToBigEndian(encrypt(BitUtils.bigEndianToLong(in, inOff), schedule, 0, rounds), out, outOff);
+    }
+  }
+
+  @Override
+  public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    long[] schedule = requireRoundKeys();
+    int rounds = schedule.length / roundKeyLength;
+    for (int i = 0; i < count; i++, inOff += 8, outOff += 8) {
+      BitUtils.longToBigEndian(decrypt(BitUtils.bigEndianToLong(in, inOff), schedule, 0, rounds), out, outOff);
+    }
+  }
+
+  /**
+   * Шифрует один блок, заданный как {@code long} в порядке big-endian.
+   */
+  public long encrypt(long block) {
+    long[] schedule = requireRoundKeys();
+    return encrypt(block, schedule, 0, schedule.length / roundKeyLength);
+  }
+
+  /**
+   * Расшифровывает один блок, заданный как {@code long} в порядке big-endian.
+   */
+  public long decrypt(long block) {
+    long[] schedule = requireRoundKeys();
+    return decrypt(block, schedule, 0, schedule.length / roundKeyLength);
+  }
+
+  /**
+   * Прогоняет сеть по внешнему расписанию, начиная со слова {@code offset}.
+   */
+  protected final long encrypt(long block, long[] schedule, int offset, int rounds) {
+    block = initialPermutation(block);
+    int left = (int) (block >>> 32);
+    int right = (int) block;
+
+    for (int end = offset + rounds * roundKeyLength; offset < end; offset += roundKeyLength) {
+      int tmp = right;
+      right = left ^ f(right, schedule, offset);
+      left = tmp;
+    }
+
+    return finalPermutation(((long) right << 32) | (left & 0xFFFFFFFFL));
+  }
+
+  protected final long decrypt(long block, long[] schedule, int offset, int rounds) {
+    block = initialPermutation(block);
+    int left = (int) (block >>> 32);
+    int right = (int) block;
+
+    for (int k = offset + (rounds - 1) * roundKeyLength; k >= offset; k -= roundKeyLength) {
+      int tmp = right;
+      right = left ^ f(right, schedule, k);
+      left = tmp;
+    }
+
+    return finalPermutation(((long) right << 32) | (left & 0xFFFFFFFFL));
+  }
+
+  private long[] requireRoundKeys() {
+    long[] schedule = roundKeys;
+    if (schedule == null) {
+      throw new IllegalStateException("Round keys not set");
+    }
+    return schedule;
+  }
+
+  private static byte[] checkBlock(Block block) {
+    byte[] data = block.getData();
+    if (data.length != 8) {
+      throw new IllegalArgumentException("Block data length must be 8 bytes");
+    }
+    return data;
+  }
+}
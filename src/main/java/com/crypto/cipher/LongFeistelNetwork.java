@@ -0,0 +1,133 @@
+package com.crypto.cipher;
+
+import com.crypto.util.BitUtils;
+import com.crypto.util.datatypes.Block;
+import com.crypto.util.datatypes.Key;
+
+/**
+ * Сеть Фейстеля над 128-битным блоком из двух половин {@code long}. Расписание ключей — плоский
+ * {@code long[]} по {@code roundKeyLength} слов на раунд; число раундов следует из его длины.
+ * В раундах ничего не выделяется.
+ */
+public abstract class LongFeistelNetwork implements SymmetricCipher {
+
+  private final int roundKeyLength;
+  private long[] roundKeys;
+
+  /**
+   * @param roundKeyLength число слов расписания на один раунд
+   */
+  protected LongFeistelNetwork(int roundKeyLength) {
+    this.roundKeyLength = roundKeyLength;
+  }
+
+  /**
+   * Разворачивает ключ в плоское расписание по {@code roundKeyLength} слов на раунд.
+   */
+  protected abstract long[] expandKey(Key key);
+
+  /**
+   * Раундовая функция, применяемая к правой половине.
+   *
+   * @param offset индекс первого слова этого раунда в {@code roundKeys}
+   */
+  protected abstract long f(long half, long[] roundKeys, int offset);
+
+  @Override
+  public void setRoundKeys(Key key) {
+    long[] schedule = expandKey(key);
+    if (schedule.length == 0 || schedule.length % roundKeyLength != 0) {
+      throw new IllegalStateException("Key schedule length must be a multiple of " + roundKeyLength);
+    }
+    this.roundKeys = schedule;
+  }
+
+  @Override
+  public int getBlockSize() {
+    return 16;
+  }
+
+  @Override
+  public Block encryptBlock(Block block) {
+    byte[] result = new byte[16];
+    encryptBlock(checkBlock(block), 0, result, 0);
+    return new Block(result);
+  }
+
+  @Override
+  public Block decryptBlock(Block block) {
+    byte[] result = new byte[16];
+    decryptBlock(checkBlock(block), 0, result, 0);
+    return new Block(result);
+  }
+
+  @Override
+  public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    encrypt(requireRoundKeys(), in, inOff, out, outOff);
+  }
+
+  @Override
+  public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    long[] schedule = requireRoundKeys();
+    for (int i = 0; i < count; i++, inOff += 16, outOff += 16) {
+      encrypt(schedule, in, inOff, out, outOff);
+    }
+  }
+
+  private void encrypt(long[] schedule, byte[] in, int inOff, byte[] out, int outOff) {
+    long left = BitUtils.bigEndianToLong(in, inOff);
+    long right = BitUtils.bigEndianToLong(in, inOff + 8);
+
+    for (int k = 0; k < schedule.length; k += roundKeyLength) {
+      long tmp = right;
+      right = left ^ f(right, schedule, k);
+      left = tmp;
+    }
+
+    BitUtils.longToBigEndian(right, out, outOff);
+    BitUtils.longToBigEndian(left, out, outOff + 8);
+  }
+
+  @Override
+  public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    decrypt(requireRoundKeys(), in, inOff, out, outOff);
+  }
+
+  @Override
+  public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    long[] schedule = requireRoundKeys();
+    for (int i = 0; i < count; i++, inOff += 16, outOff += 16) {
+      decrypt(schedule, in, inOff, out, outOff);
+    }
+  }
+
+  private void decrypt(long[] schedule, byte[] in, int inOff, byte[] out, int outOff) {
+    long left = BitUtils.bigEndianToLong(in, inOff);
+    long right = BitUtils.bigEndianToLong(in, inOff + 8);
+
+    for (int k = schedule.length - roundKeyLength; k >= 0; k -= roundKeyLength) {
+      long tmp = right;
+      right = left ^ f(right, schedule, k);
+      left = tmp;
+    }
+
+    BitUtils.longToBigEndian(right, out, outOff);
+    BitUtils.longToBigEndian(left, out, outOff + 8);
+  }
+
+  private long[] requireRoundKeys() {
+    long[] schedule = roundKeys;
+    if (schedule == null) {
+      throw new IllegalStateException("Round keys not set");
+    }
+    return schedule;
+  }
+
+  private static byte[] checkBlock(Block block) {
+    byte[] data = block.getData();
+    if (data.length != 16) {
+      throw new IllegalArgumentException("Block data length must be 16 bytes");
+    }
+    return data;
+  }
+}
@@ -3,6 +3,8 @@ package com.crypto.cipher;
 import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
 
+import java.util.Arrays;
+
 public interface SymmetricCipher {
 
   Block encryptBlock(Block block);
@@ -12,4 +14,48 @@ public interface SymmetricCipher {
   void setRoundKeys(Key key);
 
   int getBlockSize();
+
+  /**
+   * Шифрует один блок из {@link #getBlockSize()} байт из {@code in} в {@code out}.
+   * {@code in} и {@code out} могут быть одним массивом, в том числе с тем же смещением.
+   * По умолчанию сводится к {@link #encryptBlock(Block)}; реализации переопределяют его, чтобы
+   * обойтись без копий.
+   */
+  default void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    int blockSize = getBlockSize();
+    byte[] result = encryptBlock(new Block(Arrays.copyOfRange(in, inOff, inOff + blockSize))).getData();
+    System.arraycopy(result, 0, out, outOff, blockSize);
+  }
+
+  /**
+   * Расшифровывает один блок, см. {@link #encryptBlock(byte[], int, byte[], int)}.
+   */
+  default void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    int blockSize = getBlockSize();
+    byte[] result = decryptBlock(new Block(Arrays.copyOfRange(in, inOff, inOff + blockSize))).getData();
+    System.arraycopy(result, 0, out, outOff, blockSize);
+  }
+
+  /**
+   * Шифрует {@code count} подряд идущих блоков независимо друг от друга (ECB); допускается
+   * обработка на месте. Реализации переопределяют его, чтобы один раз на вызов читать ключи и
+   * не платить за вызов через интерфейс на каждый блок.
+   */
+  default void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    int blockSize = getBlockSize();
+    for (int i = 0; i < count; i++, inOff += blockSize, outOff += blockSize) {
+      encryptBlock(in, inOff, out, outOff);
+    }
+  }
+
+  /**
+   * Расшифровывает {@code count} подряд идущих блоков, см.
+   * {@link #encryptBlocks(byte[], int, byte[], int, int)}.
+   */
+  default void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    int blockSize = getBlockSize();
+    for (int i = 0; i < count; i++, inOff += blockSize, outOff += blockSize) {
+      decryptBlock(in, inOff, out, outOff);
+    }
+  }
 }
@@ -0,0 +1,200 @@
+package com.crypto.cipher.context;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Раскладывает обработку подряд идущих блоков на части и решает, выполнить их в вызывающем
+ * потоке или параллельно на {@link Executor}, по числу блоков и измеренной стоимости блока.
+ * Первая часть, пока оценки ещё нет, выполняется последовательно и служит замером.
+ */
+final class BlockScheduler {
+
+  /**
+   * Размер части в байтах: часть из подряд идущих блоков остаётся в кэше ядра.
+   */
+  private static final int CHUNK_BYTES = 16 * 1024;
+
+  /**
+   * Работа короче этого делается в вызывающем потоке: передача в пул обойдётся дороже.
+   */
+  private static final long PARALLEL_THRESHOLD_NANOS = 200_000;
+
+  @FunctionalInterface
+  interface ChunkTask {
+    void process(int firstBlock, int count);
+  }
+
+  private final Executor executor;
+  private final int parallelism;
+  private volatile double nanosPerBlock = Double.NaN;
+
+  BlockScheduler(Executor executor) {
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor must not be null");
+    }
+    this.executor = executor;
+    if (executor instanceof ForkJoinPool pool) {
+      this.parallelism = pool.getParallelism();
+    } else if (executor instanceof ThreadPoolExecutor pool && pool.getMaximumPoolSize() < Integer.MAX_VALUE) {
+      this.parallelism = pool.getMaximumPoolSize();
+    } else {
+      this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+  }
+
+  private BlockScheduler() {
+    this.executor = Runnable::run;
+    this.parallelism = 1;
+  }
+
+  /**
+   * Планировщик без пула: все части выполняются в вызывающем потоке.
+   */
+  static BlockScheduler serial() {
+    return new BlockScheduler();
+  }
+
+  /**
+   * Планировщик на том же пуле со своей оценкой стоимости — для работы другого масштаба, чтобы
+   * не сбивать оценку стоимости блока.
+   */
+  BlockScheduler sibling() {
+    return new BlockScheduler(executor);
+  }
+
+  int chunkBlocks(int blockSize) {
+    return Math.max(1, CHUNK_BYTES / blockSize);
+  }
+
+  /**
+   * Обрабатывает блоки {@code [0, blockCount)} частями по {@link #chunkBlocks(int)}; части
+   * не пересекаются, порядок их выполнения не задан.
+   */
+  void run(int blockCount, int blockSize, ChunkTask task) {
+    int chunkBlocks = chunkBlocks(blockSize);
+    int chunkCount = (blockCount + chunkBlocks - 1) / chunkBlocks;
+    int firstChunk = 0;
+
+    if (Double.isNaN(nanosPerBlock) && chunkCount > 0) {
+      runSerial(task, 0, 1, chunkBlocks, blockCount);
+      firstChunk = 1;
+    }
+    if (firstChunk >= chunkCount) {
+      return;
+    }
+
+    int remainingBlocks = blockCount - firstChunk * chunkBlocks;
+    if (parallelism < 2 || chunkCount - firstChunk < 2
+        || remainingBlocks * nanosPerBlock < PARALLEL_THRESHOLD_NANOS) {
+      runSerial(task, firstChunk, chunkCount, chunkBlocks, blockCount);
+    } else {
+      runParallel(task, firstChunk, chunkCount, chunkBlocks, blockCount);
+    }
+  }
+
+  private void runSerial(ChunkTask task, int fromChunk, int toChunk, int chunkBlocks, int blockCount) {
+    long start = System.nanoTime();
+    int firstBlock = fromChunk * chunkBlocks;
+    int lastBlock = Math.min(toChunk * chunkBlocks, blockCount);
+    for (int block = firstBlock; block < lastBlock; block += chunkBlocks) {
+      task.process(block, Math.min(chunkBlocks, lastBlock - block));
+    }
+    recordCost(System.nanoTime() - start, lastBlock - firstBlock);
+  }
+
+  /**
+   * Исполнители и вызывающий поток разбирают части по счётчику, так что медленный поток не
+   * задерживает остальных. Вызывающий поток ждёт только помощников, которые успели начать:
+   * остальные он снимает, ведь их части уже разобраны. Иначе на ограниченном пуле, все потоки
+   * которого сами ждут в {@code run}, помощники не начались бы никогда.
+   * <p>
+   * Параллельный запуск тоже уточняет оценку стоимости блока: иначе её задавал бы только первый,
+   * ещё не прогретый JIT замер.
+   */
+  private void runParallel(ChunkTask task, int fromChunk, int toChunk, int chunkBlocks, int blockCount) {
+    AtomicInteger nextChunk = new AtomicInteger(fromChunk);
+    Runnable worker = () -> {
+      try {
+        int chunk;
+        while ((chunk = nextChunk.getAndIncrement()) < toChunk) {
+          int firstBlock = chunk * chunkBlocks;
+          task.process(firstBlock, Math.min(chunkBlocks, blockCount - firstBlock));
+        }
+      } catch (RuntimeException | Error e) {
+        nextChunk.set(toChunk);
+        throw e;
+      }
+    };
+
+    long start = System.nanoTime();
+    int helperCount = Math.min(parallelism, toChunk - fromChunk) - 1;
+    AtomicBoolean[] claimed = new AtomicBoolean[helperCount];
+    CompletableFuture<?>[] helpers = new CompletableFuture<?>[helperCount];
+    for (int i = 0; i < helperCount; i++) {
+      AtomicBoolean helperClaimed = new AtomicBoolean();
+      claimed[i] = helperClaimed;
+      helpers[i] = CompletableFuture.runAsync(() -> {
+        if (helperClaimed.compareAndSet(false, true)) {
+          worker.run();
+        }
+      }, executor);
+    }
+
+    Throwable failure = null;
+    try {
+      worker.run();
+    } catch (RuntimeException | Error e) {
+      failure = e;
+    }
+    int threads = 1;
+    for (int i = 0; i < helperCount; i++) {
+      if (claimed[i].compareAndSet(false, true)) {
+        // не начавшийся помощник уже не начнётся; ждать его не нужно
+        helpers[i] = CompletableFuture.completedFuture(null);
+      } else {
+        threads++;
+      }
+    }
+    try {
+      CompletableFuture.allOf(helpers).join();
+    } catch (CompletionException e) {
+      // исключение вызывающего потока главнее: исключение помощника к нему прикладывается
+      Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+      if (failure == null) {
+        failure = cause;
+      } else if (failure != cause) {
+        failure.addSuppressed(cause);
+      }
+    }
+    if (failure instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    if (failure instanceof Error error) {
+      throw error;
+    }
+    if (failure != null) {
+      throw new CompletionException(failure);
+    }
+
+    // время стены, умноженное на число работавших потоков, — та же стоимость блока, что и в
+    // последовательном замере
+    int firstBlock = fromChunk * chunkBlocks;
+    int lastBlock = Math.min(toChunk * chunkBlocks, blockCount);
+    recordCost((System.nanoTime() - start) * threads, lastBlock - firstBlock);
+  }
+
+  private void recordCost(long nanos, int blocks) {
+    if (blocks <= 0) {
+      return;
+    }
+    double sample = (double) nanos / blocks;
+    double current = nanosPerBlock;
+    nanosPerBlock = Double.isNaN(current) ? sample : 0.75 * current + 0.25 * sample;
+  }
+}
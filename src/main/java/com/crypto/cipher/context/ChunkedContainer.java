@@ -0,0 +1,279 @@
+package com.crypto.cipher.context;
+
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Контейнер из независимо сцепленных частей. Каждая часть шифруется в выбранном режиме со своим
+ * IV, выведенным из IV контекста и номера части, поэтому части шифруются и расшифровываются
+ * параллельно в любом режиме, а любую часть можно прочитать, не читая предыдущих.
+ * <p>
+ * Формат (big-endian):
+ * <pre>
+ * заголовок: magic "SCCF", версия (1 байт), шифр, режим, набивка (строки UTF),
+ *            размер блока (int), размер части (int), длина открытого текста (long)
+ * части:     все, кроме последней, ровно по размеру части; последняя — с набивкой
+ * индекс:    число частей (int), смещения частей (long)
+ * хвост:     смещение индекса (long)
+ * </pre>
+ * Шифр записывается для сведения и при чтении не проверяется: реализации одного алгоритма
+ * взаимозаменяемы.
+ */
+public final class ChunkedContainer implements Closeable {
+
+  private static final int MAGIC = 0x53434346;
+  private static final int VERSION = 1;
+
+  /**
+   * Контекст без своего параллелизма: части и так обрабатываются параллельно.
+   */
+  private final SymmetricCipherContext context;
+  private final FileChannel channel;
+
+  @Getter
+  private final String cipherId;
+  @Getter
+  private final int chunkSize;
+  /**
+   * Длина открытого текста.
+   */
+  @Getter
+  private final long length;
+  private final long[] offsets;
+  private final long indexOffset;
+
+  private ChunkedContainer(SymmetricCipherContext context, FileChannel channel) throws IOException {
+    this.context = context.serial();
+    this.channel = channel;
+
+    DataInputStream header = new DataInputStream(Channels.newInputStream(channel.position(0)));
+    if (header.readInt() != MAGIC || header.readUnsignedByte() != VERSION) {
+      throw new IllegalArgumentException("Not a chunked container");
+    }
+    this.cipherId = header.readUTF();
+    String mode = header.readUTF();
+    String padding = header.readUTF();
+    int blockSize = header.readInt();
+    if (!mode.equals(context.getEncryptionMode().name())
+        || !padding.equals(context.getPaddingMode().name())
+        || blockSize != context.getBlockSize()) {
+      throw new IllegalArgumentException("Container was written with " + mode + "/" + padding + " and block size "
+                                         + blockSize);
+    }
+    this.chunkSize = header.readInt();
+    this.length = header.readLong();
+
+    long size = channel.size();
+    this.indexOffset = readLong(size - Long.BYTES);
+    if (chunkSize <= 0 || length < 0 || indexOffset < 0 || indexOffset > size - Integer.BYTES - Long.BYTES) {
+      throw new IllegalArgumentException("Container index is damaged");
+    }
+    int chunkCount = readInt(indexOffset);
+    if (chunkCount != chunkCount(length, chunkSize)
+        || indexOffset + Integer.BYTES + (long) chunkCount * Long.BYTES + Long.BYTES != size) {
+      throw new IllegalArgumentException("Container index is damaged");
+    }
+    ByteBuffer index = ByteBuffer.allocate(chunkCount * Long.BYTES);
+    MappedFileCipher.readFully(channel, index.array(), indexOffset + Integer.BYTES, index.capacity());
+    this.offsets = new long[chunkCount];
+    index.asLongBuffer().get(offsets);
+  }
+
+  /**
+   * Открывает контейнер для чтения частей; режим, набивка и размер блока должны совпадать с
+   * {@code context}.
+   */
+  public static ChunkedContainer open(SymmetricCipherContext context, Path container) throws IOException {
+    if (context.getBlockSize() <= 0) {
+      throw new IllegalStateException("blockSize must be greater than 0");
+    }
+    FileChannel channel = FileChannel.open(container, StandardOpenOption.READ);
+    try {
+      return new ChunkedContainer(context, channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public int getChunkCount() {
+    return offsets.length;
+  }
+
+  /**
+   * Расшифровывает часть {@code index}; безопасно вызывать из разных потоков.
+   */
+  public byte[] readChunk(int index) throws IOException {
+    if (index < 0 || index >= offsets.length) {
+      throw new IndexOutOfBoundsException("Chunk " + index + " of " + offsets.length);
+    }
+    long end = (index + 1 < offsets.length) ? offsets[index + 1] : indexOffset;
+    int cipherLength = (int) (end - offsets[index]);
+    int plainLength = plainLength(index);
+    if (cipherLength % context.getBlockSize() != 0 || cipherLength < plainLength) {
+      throw new IllegalArgumentException("Message last block size is wrong.");
+    }
+    byte[] data = new byte[cipherLength];
+    if (MappedFileCipher.readFully(channel, data, offsets[index], cipherLength) != cipherLength) {
+      throw new IllegalArgumentException("Container is truncated");
+    }
+    process(context, index, data, cipherLength, SymmetricCipherContext.Operation.DECRYPT);
+    return (plainLength == cipherLength) ? data : Arrays.copyOf(data, plainLength);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Шифрует {@code source} в контейнер {@code target} частями по {@code chunkSize} байт; части
+   * раздаёт {@code scheduler}, каждая обрабатывается в одном потоке.
+   */
+  static void create(SymmetricCipherContext context, BlockScheduler scheduler, Path source, Path target,
+                     int chunkSize, FileProgress progress) throws IOException {
+    int blockSize = context.getBlockSize();
+    if (chunkSize <= 0 || chunkSize % blockSize != 0) {
+      throw new IllegalArgumentException("Chunk size must be a positive multiple of the block size");
+    }
+    try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+         FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      long length = input.size();
+      int chunkCount = chunkCount(length, chunkSize);
+      byte[] header = header(context, chunkSize, length);
+      MappedFileCipher.writeFully(output, header, header.length, 0);
+
+      SymmetricCipherContext serial = context.serial();
+      long[] offsets = new long[chunkCount];
+      for (int index = 0; index < chunkCount; index++) {
+        offsets[index] = header.length + (long) index * chunkSize;
+      }
+      // конец последней части, то есть начало индекса
+      long[] indexOffset = new long[1];
+      ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[chunkSize + blockSize]);
+      scheduler.run(chunkCount, chunkSize, (firstChunk, count) -> {
+        byte[] data = buffers.get();
+        for (int index = firstChunk; index < firstChunk + count; index++) {
+          long position = (long) index * chunkSize;
+          int plainLength = (int) Math.min(chunkSize, length - position);
+          try {
+            if (MappedFileCipher.readFully(input, data, position, plainLength) != plainLength) {
+              throw new IllegalStateException("Source file changed while it was being encrypted");
+            }
+            int cipherLength = (index == chunkCount - 1) ? serial.applyPadding(data, plainLength) : plainLength;
+            process(serial, index, data, cipherLength, SymmetricCipherContext.Operation.ENCRYPT);
+            MappedFileCipher.writeFully(output, data, cipherLength, offsets[index]);
+            if (index == chunkCount - 1) {
+              indexOffset[0] = offsets[index] + cipherLength;
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          progress.advance(plainLength);
+        }
+      });
+
+      ByteBuffer index = ByteBuffer.allocate(Integer.BYTES + chunkCount * Long.BYTES + Long.BYTES);
+      index.putInt(chunkCount);
+      index.asLongBuffer().put(offsets);
+      index.position(index.position() + chunkCount * Long.BYTES);
+      index.putLong(indexOffset[0]);
+      MappedFileCipher.writeFully(output, index.array(), index.capacity(), indexOffset[0]);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Расшифровывает весь контейнер в {@code target}, части — параллельно.
+   */
+  void extract(BlockScheduler scheduler, Path target, FileProgress progress) throws IOException {
+    try (FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      scheduler.run(offsets.length, chunkSize, (firstChunk, count) -> {
+        for (int index = firstChunk; index < firstChunk + count; index++) {
+          try {
+            byte[] data = readChunk(index);
+            MappedFileCipher.writeFully(output, data, data.length, (long) index * chunkSize);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          progress.advance(plainLength(index));
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private int plainLength(int index) {
+    return (int) Math.min(chunkSize, length - (long) index * chunkSize);
+  }
+
+  private static int chunkCount(long length, int chunkSize) {
+    long count = Math.max(1, (length + chunkSize - 1) / chunkSize);
+    if (count > Integer.MAX_VALUE / Long.BYTES) {
+      throw new IllegalArgumentException("Chunk size is too small for a file of " + length + " bytes");
+    }
+    return (int) count;
+  }
+
+  private static byte[] header(SymmetricCipherContext context, int chunkSize, long length) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream header = new DataOutputStream(bytes);
+    header.writeInt(MAGIC);
+    header.writeByte(VERSION);
+    header.writeUTF(context.getSymmetricCipher().getClass().getSimpleName());
+    header.writeUTF(context.getEncryptionMode().name());
+    header.writeUTF(context.getPaddingMode().name());
+    header.writeInt(context.getBlockSize());
+    header.writeInt(chunkSize);
+    header.writeLong(length);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Часть сцеплена сама по себе: начальное состояние режима — от IV {@code E_K(IV ^ index)}.
+   */
+  private static void process(SymmetricCipherContext context, int index, byte[] data, int length,
+                              SymmetricCipherContext.Operation operation) {
+    SymmetricCipherContext chunkContext = context.withDerivedInitializationVector(tweak(context.getBlockSize(), index));
+    chunkContext.processWithMode(data, 0, length, operation, chunkContext.initialRegister());
+  }
+
+  /**
+   * Номер части big-endian в младших байтах блока.
+   */
+  private static byte[] tweak(int blockSize, int index) {
+    byte[] tweak = new byte[blockSize];
+    for (int i = 0; i < Math.min(Integer.BYTES, blockSize); i++) {
+      tweak[blockSize - 1 - i] = (byte) (index >>> (8 * i));
+    }
+    return tweak;
+  }
+
+  private long readLong(long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+    MappedFileCipher.readFully(channel, buffer.array(), position, Long.BYTES);
+    return buffer.getLong();
+  }
+
+  private int readInt(long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+    MappedFileCipher.readFully(channel, buffer.array(), position, Integer.BYTES);
+    return buffer.getInt();
+  }
+}
@@ -0,0 +1,113 @@
+package com.crypto.cipher.context;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Отдаёт данные нижележащего потока, зашифрованные или расшифрованные через
+ * {@link CipherSession}. Большие чтения обрабатываются сразу в массиве вызывающего; мелкие идут
+ * через внутренний буфер. Набивка обрабатывается, когда нижележащий поток заканчивается.
+ */
+public class CipherInputStream extends FilterInputStream {
+
+  private static final int BUFFER_BYTES = 16 * 1024;
+
+  private final CipherSession session;
+  private final int blockSize;
+  private final byte[] input = new byte[BUFFER_BYTES];
+  private final byte[] output;
+  private final byte[] single = new byte[1];
+  private int position;
+  private int limit;
+  private boolean finished;
+
+  public CipherInputStream(InputStream in, CipherSession session) {
+    super(in);
+    if (session == null) {
+      throw new IllegalArgumentException("Cipher session must not be null");
+    }
+    this.session = session;
+    this.blockSize = session.getBlockSize();
+    this.output = new byte[BUFFER_BYTES + blockSize];
+  }
+
+  @Override
+  public int read() throws IOException {
+    return (read(single, 0, 1) < 0) ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    if (len == 0) {
+      return 0;
+    }
+    while (position == limit) {
+      if (finished) {
+        return -1;
+      }
+      if (len > blockSize) {
+        // сессия может вернуть на блок больше, чем прочитано
+        int written = process(b, off, Math.min(input.length, len - blockSize));
+        if (written > 0) {
+          return written;
+        }
+      } else {
+        position = 0;
+        limit = process(output, 0, input.length);
+      }
+    }
+    int count = Math.min(len, limit - position);
+    System.arraycopy(output, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = 0;
+    byte[] scratch = new byte[(int) Math.min(Math.max(n, 0), BUFFER_BYTES)];
+    while (skipped < n) {
+      int count = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+      if (count < 0) {
+        break;
+      }
+      skipped += count;
+    }
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return limit - position;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int readLimit) {
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  /**
+   * Читает до {@code maxInput} байт и пишет результат в {@code target}; в конце нижележащего
+   * потока завершает сессию.
+   */
+  private int process(byte[] target, int offset, int maxInput) throws IOException {
+    int read = in.read(input, 0, maxInput);
+    if (read < 0) {
+      finished = true;
+      return session.doFinal(target, offset);
+    }
+    return session.update(input, 0, read, target, offset);
+  }
+}
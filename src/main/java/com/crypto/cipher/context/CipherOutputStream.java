@@ -0,0 +1,76 @@
+package com.crypto.cipher.context;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Шифрует или расшифровывает всё, что в него пишут, через {@link CipherSession} и передаёт
+ * результат в нижележащий поток. Данные проходят через один внутренний буфер фиксированного
+ * размера; последний блок с набивкой записывается в {@link #close()}.
+ */
+public class CipherOutputStream extends FilterOutputStream {
+
+  private static final int BUFFER_BYTES = 16 * 1024;
+
+  private final CipherSession session;
+  private final byte[] buffer;
+  private final byte[] single = new byte[1];
+  private boolean closed;
+
+  public CipherOutputStream(OutputStream out, CipherSession session) {
+    super(out);
+    if (session == null) {
+      throw new IllegalArgumentException("Cipher session must not be null");
+    }
+    this.session = session;
+    this.buffer = new byte[BUFFER_BYTES + session.getBlockSize()];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    single[0] = (byte) b;
+    write(single, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    ensureOpen();
+    while (len > 0) {
+      int count = Math.min(len, BUFFER_BYTES);
+      int written = session.update(b, off, count, buffer, 0);
+      out.write(buffer, 0, written);
+      off += count;
+      len -= count;
+    }
+  }
+
+  /**
+   * Неполный блок остаётся в сессии до {@link #close()}.
+   */
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try (OutputStream target = out) {
+      int written = session.doFinal(buffer, 0);
+      target.write(buffer, 0, written);
+      target.flush();
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
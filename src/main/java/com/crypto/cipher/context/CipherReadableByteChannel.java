@@ -0,0 +1,98 @@
+package com.crypto.cipher.context;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Канал, отдающий данные нижележащего канала, зашифрованные или расшифрованные через
+ * {@link CipherSession}. В буфер с массивом данные читаются и обрабатываются прямо на месте.
+ * Прямой буфер заполняется через внутренний массив: шифры ({@link com.crypto.cipher.SymmetricCipher})
+ * работают только с {@code byte[]}, поэтому на каждую часть приходится одно копирование
+ * {@code byte[]} → прямой буфер. Это одно копирование части за раз, без объектов на блок, и
+ * оно дешевле самого шифрования. Набивка обрабатывается, когда нижележащий канал заканчивается.
+ */
+public class CipherReadableByteChannel implements ReadableByteChannel {
+
+  private final ReadableByteChannel source;
+  private final CipherSession session;
+  private final int blockSize;
+  private final byte[] staging;
+  private final ByteBuffer output;
+  private boolean finished;
+  private boolean open = true;
+
+  public CipherReadableByteChannel(ReadableByteChannel source, CipherSession session) {
+    if (source == null || session == null) {
+      throw new IllegalArgumentException("Source channel and cipher session must not be null");
+    }
+    this.source = source;
+    this.session = session;
+    this.blockSize = session.getBlockSize();
+    this.staging = new byte[CipherWritableByteChannel.CHUNK_BYTES + blockSize];
+    this.output = ByteBuffer.wrap(staging).limit(0);
+  }
+
+  /**
+   * @return число байт, 0 если нижележащий канал пока ничего не отдал, или -1 в конце данных
+   */
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+    if (!dst.hasRemaining()) {
+      return 0;
+    }
+    while (!output.hasRemaining()) {
+      if (finished) {
+        return -1;
+      }
+      if (dst.hasArray() && dst.remaining() > blockSize) {
+        // сессия может вернуть на блок больше, чем прочитано
+        byte[] array = dst.array();
+        int offset = dst.arrayOffset() + dst.position();
+        int maxInput = Math.min(dst.remaining() - blockSize, CipherWritableByteChannel.CHUNK_BYTES);
+        int read = source.read(ByteBuffer.wrap(array, offset, maxInput));
+        if (read == 0) {
+          return 0;
+        }
+        int written = (read < 0)
+                      ? finish(array, offset)
+                      : session.update(array, offset, read, array, offset);
+        if (written > 0) {
+          dst.position(dst.position() + written);
+          return written;
+        }
+      } else {
+        int read = source.read(ByteBuffer.wrap(staging, 0, CipherWritableByteChannel.CHUNK_BYTES));
+        if (read == 0) {
+          return 0;
+        }
+        int written = (read < 0) ? finish(staging, 0) : session.update(staging, 0, read, staging, 0);
+        output.limit(written).position(0);
+      }
+    }
+    int count = Math.min(dst.remaining(), output.remaining());
+    dst.put(output.slice(output.position(), count));
+    output.position(output.position() + count);
+    return count;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() throws IOException {
+    open = false;
+    source.close();
+  }
+
+  private int finish(byte[] out, int offset) {
+    finished = true;
+    return session.doFinal(out, offset);
+  }
+}
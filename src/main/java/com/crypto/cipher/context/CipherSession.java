@@ -0,0 +1,122 @@
+package com.crypto.cipher.context;
+
+import lombok.Getter;
+
+import java.util.Objects;
+
+/**
+ * Пошаговое шифрование или расшифровка одного потока данных, приходящих частями. Хранит только
+ * состояние режима и неполный блок, поэтому память не зависит от длины потока.
+ * <p>
+ * {@link #update} обрабатывает все накопившиеся целые блоки прямо в выходном массиве; при
+ * расшифровке последний целый блок придерживается до {@link #doFinal}, где с него снимается
+ * набивка. После {@link #doFinal} сессия начинает новый поток с IV. Сессия не потокобезопасна.
+ */
+public final class CipherSession {
+
+  private final SymmetricCipherContext context;
+  private final SymmetricCipherContext.Operation operation;
+  @Getter
+  private final int blockSize;
+
+  private byte[] register;
+  private byte[] pending;
+  private byte[] spare;
+  private int pendingLength;
+
+  CipherSession(SymmetricCipherContext context, SymmetricCipherContext.Operation operation) {
+    this.context = context;
+    this.operation = operation;
+    this.blockSize = context.getBlockSize();
+    this.register = context.initialRegister();
+    this.pending = new byte[blockSize];
+    this.spare = new byte[blockSize];
+  }
+
+  /**
+   * Сколько байт самое большее вернут {@link #update} и {@link #doFinal}, если подать ещё
+   * {@code inputLength} байт.
+   */
+  public int getOutputSize(int inputLength) {
+    int total = pendingLength + inputLength;
+    if (operation == SymmetricCipherContext.Operation.ENCRYPT) {
+      return (total + blockSize - 1) / blockSize * blockSize;
+    }
+    return total;
+  }
+
+  /**
+   * Подаёт {@code length} байт из {@code in} и записывает в {@code out} готовые блоки.
+   * {@code in} и {@code out} могут быть одним массивом.
+   *
+   * @return сколько байт записано в {@code out}
+   */
+  public int update(byte[] in, int inOffset, int length, byte[] out, int outOffset) {
+    Objects.checkFromIndexSize(inOffset, length, in.length);
+    int total = pendingLength + length;
+    int processed = (operation == SymmetricCipherContext.Operation.ENCRYPT)
+                    ? total - total % blockSize
+                    : (total == 0) ? 0 : (total - 1) / blockSize * blockSize;
+    if (processed == 0) {
+      System.arraycopy(in, inOffset, pending, pendingLength, length);
+      pendingLength = total;
+      return 0;
+    }
+    Objects.checkFromIndexSize(outOffset, processed, out.length);
+
+    int fromInput = processed - pendingLength;
+    int remainder = length - fromInput;
+    // хвост сохраняется до записи в out, который может совпадать с in
+    System.arraycopy(in, inOffset + fromInput, spare, 0, remainder);
+    System.arraycopy(in, inOffset, out, outOffset + pendingLength, fromInput);
+    System.arraycopy(pending, 0, out, outOffset, pendingLength);
+
+    byte[] swap = pending;
+    pending = spare;
+    spare = swap;
+    pendingLength = remainder;
+
+    context.processWithMode(out, outOffset, processed, operation, register);
+    return processed;
+  }
+
+  /**
+   * Завершает поток: при шифровании добавляет набивку к неполному блоку, при расшифровке
+   * снимает её с последнего блока.
+   *
+   * @return сколько байт записано в {@code out}
+   */
+  public int doFinal(byte[] out, int outOffset) {
+    try {
+      if (pendingLength == 0) {
+        return 0;
+      }
+      int length;
+      if (operation == SymmetricCipherContext.Operation.ENCRYPT) {
+        length = context.applyPadding(pending, pendingLength);
+        Objects.checkFromIndexSize(outOffset, length, out.length);
+        context.processWithMode(pending, 0, length, operation, register);
+      } else {
+        if (pendingLength != blockSize) {
+          throw new IllegalArgumentException("Message last block size is wrong.");
+        }
+        context.processWithMode(pending, 0, blockSize, operation, register);
+        length = blockSize - context.paddingLength(pending, blockSize);
+        Objects.checkFromIndexSize(outOffset, length, out.length);
+      }
+      System.arraycopy(pending, 0, out, outOffset, length);
+      return length;
+    } finally {
+      register = context.initialRegister();
+      pendingLength = 0;
+    }
+  }
+
+  /**
+   * {@link #update} и затем {@link #doFinal(byte[], int)}.
+   */
+  public int doFinal(byte[] in, int inOffset, int length, byte[] out, int outOffset) {
+    int written = update(in, inOffset, length, out, outOffset);
+    return written + doFinal(out, outOffset + written);
+  }
+}
@@ -0,0 +1,97 @@
+package com.crypto.cipher.context;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Канал, который шифрует или расшифровывает записанные в него {@link ByteBuffer} (в том числе
+ * прямые) через {@link CipherSession} и пишет результат в нижележащий канал. Данные идут частями
+ * по {@link #CHUNK_BYTES}, кратными блоку, так что канал подходит как цель
+ * {@link java.nio.channels.FileChannel#transferTo}. Последний блок с набивкой пишется в
+ * {@link #close()}. Нижележащий канал должен быть блокирующим.
+ * <p>
+ * Любой буфер, и прямой, и с массивом, сначала копируется во внутренний массив: шифры
+ * ({@link com.crypto.cipher.SymmetricCipher}) работают только с {@code byte[]}, а буфер
+ * вызывающего менять нельзя. Дальше часть шифруется на месте и пишется одним вызовом.
+ */
+public class CipherWritableByteChannel implements GatheringByteChannel {
+
+  static final int CHUNK_BYTES = 64 * 1024;
+
+  private final WritableByteChannel target;
+  private final CipherSession session;
+  private final byte[] staging;
+  private boolean open = true;
+
+  public CipherWritableByteChannel(WritableByteChannel target, CipherSession session) {
+    if (target == null || session == null) {
+      throw new IllegalArgumentException("Target channel and cipher session must not be null");
+    }
+    this.target = target;
+    this.session = session;
+    this.staging = new byte[CHUNK_BYTES + session.getBlockSize()];
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    ensureOpen();
+    int total = src.remaining();
+    while (src.hasRemaining()) {
+      int count = Math.min(src.remaining(), CHUNK_BYTES);
+      // одно копирование из буфера, дальше шифрование на месте
+      src.get(staging, 0, count);
+      writeFully(session.update(staging, 0, count, staging, 0));
+    }
+    return total;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    Objects.checkFromIndexSize(offset, length, srcs.length);
+    long total = 0;
+    for (int i = offset; i < offset + length; i++) {
+      total += write(srcs[i]);
+    }
+    return total;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs) throws IOException {
+    return write(srcs, 0, srcs.length);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!open) {
+      return;
+    }
+    open = false;
+    try {
+      writeFully(session.doFinal(staging, 0));
+    } finally {
+      target.close();
+    }
+  }
+
+  private void writeFully(int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(staging, 0, length);
+    while (buffer.hasRemaining()) {
+      target.write(buffer);
+    }
+  }
+
+  private void ensureOpen() throws ClosedChannelException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+  }
+}
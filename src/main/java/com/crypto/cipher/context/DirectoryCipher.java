@@ -0,0 +1,146 @@
+package com.crypto.cipher.context;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Обработка дерева каталогов в дерево той же структуры. Мелкие файлы обрабатываются
+ * одновременно, каждый в своём виртуальном потоке; файлы, которые и так обрабатываются
+ * параллельно через отображение в память, — по одному в обходящем потоке, чтобы не делить пул
+ * между собой. Все файлы используют одно расписание ключей, IV у каждого свой — см.
+ * {@link SymmetricCipherContext#withDerivedInitializationVector(byte[])}.
+ */
+final class DirectoryCipher {
+
+  /**
+   * Сколько файлов может быть открыто одновременно.
+   */
+  private static final int MAX_CONCURRENT_FILES = 256;
+
+  private final SymmetricCipherContext context;
+  private final Semaphore openFiles = new Semaphore(MAX_CONCURRENT_FILES);
+  private final LongAdder files = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final Map<Path, Throwable> failures = new ConcurrentHashMap<>();
+
+  DirectoryCipher(SymmetricCipherContext context) {
+    this.context = context;
+  }
+
+  DirectorySummary run(Path sourceRoot, Path targetRoot, SymmetricCipherContext.Operation operation,
+                       FileProgress progress) throws IOException {
+    if (!Files.isDirectory(sourceRoot)) {
+      throw new IllegalArgumentException("Source is not a directory: " + sourceRoot);
+    }
+    Path source = sourceRoot.toAbsolutePath().normalize();
+    Path target = targetRoot.toAbsolutePath().normalize();
+    if (target.startsWith(source)) {
+      throw new IllegalArgumentException("Target directory must not be inside the source directory");
+    }
+
+    long start = System.nanoTime();
+    try (ExecutorService smallFiles = Executors.newVirtualThreadPerTaskExecutor()) {
+      Files.walkFileTree(source, new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+          progress.checkCancelled();
+          Files.createDirectories(target.resolve(source.relativize(directory)));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+          progress.checkCancelled();
+          if (!attributes.isRegularFile()) {
+            return FileVisitResult.CONTINUE;
+          }
+          Path relative = source.relativize(file);
+          Path targetFile = target.resolve(relative);
+          if (context.useMappedFile(attributes.size(), operation)) {
+            processFile(relative, file, targetFile, attributes.size(), operation, progress);
+          } else {
+            acquireOpenFile();
+            smallFiles.execute(() -> {
+              try {
+                processFile(relative, file, targetFile, attributes.size(), operation, progress);
+              } finally {
+                openFiles.release();
+              }
+            });
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          failures.put(source.relativize(file), e);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    }
+    progress.checkCancelled();
+    return new DirectorySummary(files.sum(), bytes.sum(), System.nanoTime() - start, failures);
+  }
+
+  private void processFile(Path relative, Path sourceFile, Path targetFile, long size,
+                           SymmetricCipherContext.Operation operation, FileProgress progress) {
+    try {
+      SymmetricCipherContext fileContext = context.withDerivedInitializationVector(tweak(relative));
+      if (operation == SymmetricCipherContext.Operation.ENCRYPT) {
+        fileContext.encryptFile(sourceFile.toString(), targetFile.toString(), progress);
+      } else {
+        fileContext.decryptFile(sourceFile.toString(), targetFile.toString(), progress);
+      }
+      files.increment();
+      bytes.add(size);
+    } catch (CancellationException e) {
+      // обход заметит отмену сам
+    } catch (IOException | RuntimeException e) {
+      failures.put(relative, e);
+    }
+  }
+
+  private void acquireOpenFile() throws InterruptedIOException {
+    try {
+      openFiles.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Directory processing was interrupted");
+    }
+  }
+
+  /**
+   * Относительный путь с разделителем {@code /}: IV файла не зависит от платформы.
+   */
+  private byte[] tweak(Path relative) {
+    StringBuilder name = new StringBuilder();
+    for (Path part : relative) {
+      if (!name.isEmpty()) {
+        name.append('/');
+      }
+      name.append(part);
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(name.toString().getBytes(StandardCharsets.UTF_8));
+      return Arrays.copyOf(digest, Math.min(digest.length, context.getBlockSize()));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.crypto.cipher.context;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Итог обработки дерева каталогов: сколько файлов и байт обработано, за какое время и какие
+ * файлы обработать не удалось.
+ */
+@Getter
+public final class DirectorySummary {
+
+  private final long files;
+  private final long bytes;
+  private final long elapsedNanos;
+
+  /**
+   * Необработанные файлы (пути относительно корня исходного дерева) и причина.
+   */
+  private final Map<Path, Throwable> failures;
+
+  DirectorySummary(long files, long bytes, long elapsedNanos, Map<Path, Throwable> failures) {
+    this.files = files;
+    this.bytes = bytes;
+    this.elapsedNanos = elapsedNanos;
+    this.failures = Collections.unmodifiableMap(new TreeMap<>(failures));
+  }
+
+  public double getBytesPerSecond() {
+    return (elapsedNanos == 0) ? 0 : bytes * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d files, %d bytes in %d ms (%.1f MB/s), %d failed",
+            files, bytes, elapsedNanos / 1_000_000, getBytesPerSecond() / (1024 * 1024), failures.size());
+  }
+}
@@ -0,0 +1,241 @@
+package com.crypto.cipher.context;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Обработка файла тремя стадиями — чтение, шифрование, запись, — связанными ограниченными
+ * очередями переиспользуемых буферов. Нужна режимам с последовательным сцеплением (CBC, PCBC,
+ * шифрование CFB, OFB): пока шифр обрабатывает часть, следующая читается, а предыдущая пишется.
+ * Чтение и шифрование идут в своих виртуальных потоках, запись — в вызывающем. Все буферы
+ * выделяются заранее в пределах заданного объёма памяти.
+ */
+final class FilePipeline {
+
+  private static final int CHUNK_BLOCKS = 4096;
+  private static final int MIN_CHUNKS = 3;
+
+  private static final int BUSY = 0;
+  private static final int STALL = 1;
+
+  private static final class Chunk {
+    final byte[] data;
+    int length;
+    int sourceLength;
+    boolean last;
+    Throwable failure;
+
+    Chunk(int capacity) {
+      this.data = new byte[capacity];
+    }
+  }
+
+  private final SymmetricCipherContext context;
+  private final int blockSize;
+  private final int chunkBytes;
+  private final int chunkCount;
+
+  /**
+   * @param memoryBytes сколько памяти можно занять буферами; не меньше трёх блоков
+   */
+  FilePipeline(SymmetricCipherContext context, int memoryBytes) {
+    this.context = context;
+    this.blockSize = context.getBlockSize();
+    if (memoryBytes < MIN_CHUNKS * blockSize) {
+      throw new IllegalArgumentException("Pipeline memory must hold at least " + MIN_CHUNKS + " blocks");
+    }
+    this.chunkBytes = Math.min(CHUNK_BLOCKS, memoryBytes / MIN_CHUNKS / blockSize) * blockSize;
+    this.chunkCount = memoryBytes / chunkBytes;
+  }
+
+  PipelineStats run(String sourceFilePath, String targetFilePath, SymmetricCipherContext.Operation operation,
+                    FileProgress progress) throws IOException {
+    BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(chunkCount);
+    // место для ещё одной части с ошибкой
+    BlockingQueue<Chunk> toCipher = new ArrayBlockingQueue<>(chunkCount + 1);
+    BlockingQueue<Chunk> toWrite = new ArrayBlockingQueue<>(chunkCount + 1);
+    for (int i = 0; i < chunkCount; i++) {
+      free.add(new Chunk(chunkBytes));
+    }
+    long[] readTimes = new long[2];
+    long[] cipherTimes = new long[2];
+    long[] writeTimes = new long[2];
+    long[] bytesRead = new long[1];
+
+    try (OfbKeystreamGenerator keyStream = context.startOfbKeystream(new File(sourceFilePath).length());
+         InputStream inputStream = new FileInputStream(sourceFilePath);
+         OutputStream outputStream = new FileOutputStream(targetFilePath)) {
+
+      Thread reader = Thread.ofVirtual().name("pipeline-reader")
+              .start(() -> read(inputStream, free, toCipher, readTimes, bytesRead));
+      Thread cipher = Thread.ofVirtual().name("pipeline-cipher")
+              .start(() -> process(operation, keyStream, toCipher, toWrite, cipherTimes));
+      try {
+        write(operation, outputStream, toWrite, free, writeTimes, progress);
+      } finally {
+        reader.interrupt();
+        cipher.interrupt();
+        joinUninterruptibly(reader);
+        joinUninterruptibly(cipher);
+      }
+    }
+    return new PipelineStats(bytesRead[0],
+            readTimes[BUSY], readTimes[STALL],
+            cipherTimes[BUSY], cipherTimes[STALL],
+            writeTimes[BUSY], writeTimes[STALL]);
+  }
+
+  private void read(InputStream inputStream, BlockingQueue<Chunk> free, BlockingQueue<Chunk> toCipher,
+                    long[] times, long[] bytesRead) {
+    try {
+      boolean last = false;
+      while (!last) {
+        long start = System.nanoTime();
+        Chunk chunk = free.take();
+        long taken = System.nanoTime();
+        chunk.length = chunk.sourceLength = inputStream.readNBytes(chunk.data, 0, chunk.data.length);
+        chunk.last = last = chunk.length < chunk.data.length;
+        bytesRead[0] += chunk.length;
+        long done = System.nanoTime();
+        toCipher.put(chunk);
+        times[BUSY] += done - taken;
+        times[STALL] += (taken - start) + (System.nanoTime() - done);
+      }
+    } catch (InterruptedException e) {
+      // конвейер остановлен вызывающим потоком
+    } catch (IOException | RuntimeException e) {
+      toCipher.add(failed(e));
+    }
+  }
+
+  private void process(SymmetricCipherContext.Operation operation, OfbKeystreamGenerator keyStream,
+                       BlockingQueue<Chunk> toCipher, BlockingQueue<Chunk> toWrite, long[] times) {
+    byte[] register = context.initialRegister();
+    try {
+      boolean last = false;
+      while (!last) {
+        long start = System.nanoTime();
+        Chunk chunk = toCipher.take();
+        long taken = System.nanoTime();
+        if (chunk.failure == null) {
+          try {
+            processChunk(chunk, operation, keyStream, register);
+          } catch (RuntimeException e) {
+            chunk = failed(e);
+          }
+        }
+        // после передачи часть может уже вернуться к чтению, поэтому признак читается заранее
+        last = chunk.last;
+        long done = System.nanoTime();
+        toWrite.put(chunk);
+        times[BUSY] += done - taken;
+        times[STALL] += (taken - start) + (System.nanoTime() - done);
+      }
+    } catch (InterruptedException e) {
+      // конвейер остановлен вызывающим потоком
+    }
+  }
+
+  private void processChunk(Chunk chunk, SymmetricCipherContext.Operation operation,
+                            OfbKeystreamGenerator keyStream, byte[] register) {
+    if (operation == SymmetricCipherContext.Operation.ENCRYPT) {
+      if (chunk.last) {
+        chunk.length = context.applyPadding(chunk.data, chunk.length);
+      }
+    } else if (chunk.length % blockSize != 0) {
+      throw new IllegalArgumentException("Message last block size is wrong.");
+    }
+    if (keyStream != null) {
+      keyStream.xor(chunk.data, 0, chunk.length);
+    } else {
+      context.processWithMode(chunk.data, 0, chunk.length, operation, register);
+    }
+  }
+
+  /**
+   * При расшифровке последний блок каждой части придерживается: набивку можно снять, только
+   * когда известно, что блок в файле последний.
+   */
+  private void write(SymmetricCipherContext.Operation operation, OutputStream outputStream,
+                     BlockingQueue<Chunk> toWrite, BlockingQueue<Chunk> free, long[] times,
+                     FileProgress progress) throws IOException {
+    byte[] held = new byte[blockSize];
+    boolean holding = false;
+    while (true) {
+      long start = System.nanoTime();
+      Chunk chunk;
+      try {
+        chunk = toWrite.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("File pipeline was interrupted");
+      }
+      long taken = System.nanoTime();
+      times[STALL] += taken - start;
+      if (chunk.failure != null) {
+        rethrow(chunk.failure);
+      }
+
+      if (operation == SymmetricCipherContext.Operation.ENCRYPT) {
+        outputStream.write(chunk.data, 0, chunk.length);
+      } else {
+        if (chunk.length > 0) {
+          if (holding) {
+            outputStream.write(held, 0, blockSize);
+          }
+          outputStream.write(chunk.data, 0, chunk.length - blockSize);
+          System.arraycopy(chunk.data, chunk.length - blockSize, held, 0, blockSize);
+          holding = true;
+        }
+        if (chunk.last && holding) {
+          outputStream.write(held, 0, blockSize - context.paddingLength(held, blockSize));
+        }
+      }
+      times[BUSY] += System.nanoTime() - taken;
+      progress.advance(chunk.sourceLength);
+      if (chunk.last) {
+        return;
+      }
+      free.add(chunk);
+    }
+  }
+
+  private static Chunk failed(Throwable failure) {
+    Chunk chunk = new Chunk(0);
+    chunk.failure = failure;
+    chunk.last = true;
+    return chunk;
+  }
+
+  private static void rethrow(Throwable failure) throws IOException {
+    if (failure instanceof IOException e) {
+      throw e;
+    }
+    if (failure instanceof RuntimeException e) {
+      throw e;
+    }
+    throw (Error) failure;
+  }
+
+  private static void joinUninterruptibly(Thread thread) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        thread.join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
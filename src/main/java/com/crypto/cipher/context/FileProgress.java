@@ -0,0 +1,45 @@
+package com.crypto.cipher.context;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Ход обработки одного файла: считает обработанные байты исходного файла, сообщает их
+ * слушателю и проверяет, не отменена ли задача. Отмена кооперативная — обработка проверяет её
+ * между частями и прерывается {@link CancellationException}.
+ */
+final class FileProgress {
+
+  private final Future<?> task;
+  private final LongConsumer listener;
+  private final AtomicLong bytes = new AtomicLong();
+
+  /**
+   * @param task     задача, отмену которой нужно замечать
+   * @param listener получает общее число обработанных байт; может быть {@code null}
+   */
+  FileProgress(Future<?> task, LongConsumer listener) {
+    this.task = task;
+    this.listener = listener;
+  }
+
+  void checkCancelled() {
+    if (task.isCancelled()) {
+      throw new CancellationException("File processing was cancelled");
+    }
+  }
+
+  /**
+   * Отмечает ещё {@code count} обработанных байт. При обработке частями параллельно слушатель
+   * может вызываться из разных потоков.
+   */
+  void advance(long count) {
+    checkCancelled();
+    long total = bytes.addAndGet(count);
+    if (listener != null) {
+      listener.accept(total);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package com.crypto.cipher.context;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Обработка файла через отображение в память для режимов, где состояние перед любым блоком
+ * вычисляется без обработки предыдущих: ECB, CTR, RANDOM_DELTA, а также расшифровка CBC и CFB.
+ * Исходный и итоговый файлы отображаются окнами до {@link #WINDOW_BYTES}; окно делится на части
+ * {@link BlockScheduler}, и каждая часть обрабатывается независимо между отображениями.
+ * Неполный последний блок при шифровании и блок с набивкой при расшифровке пишутся отдельно.
+ */
+final class MappedFileCipher {
+
+  /**
+   * Размер одного отображения: больше 2 ГБ один {@link MappedByteBuffer} не вмещает.
+   */
+  private static final long WINDOW_BYTES = 1L << 30;
+
+  private final SymmetricCipherContext context;
+  private final BlockScheduler scheduler;
+  private final int blockSize;
+  private final boolean chainsCiphertext;
+  private final ThreadLocal<byte[]> workBuffers;
+
+  MappedFileCipher(SymmetricCipherContext context, BlockScheduler scheduler) {
+    this.context = context;
+    this.scheduler = scheduler;
+    this.blockSize = context.getBlockSize();
+    // из поддерживаемых CBC и CFB бывают только при расшифровке
+    this.chainsCiphertext = context.getEncryptionMode() == SymmetricCipherContext.EncryptionMode.CBC
+                            || context.getEncryptionMode() == SymmetricCipherContext.EncryptionMode.CFB;
+    int chunkBytes = scheduler.chunkBlocks(blockSize) * blockSize;
+    this.workBuffers = ThreadLocal.withInitial(() -> new byte[chunkBytes]);
+  }
+
+  static boolean supports(SymmetricCipherContext.EncryptionMode mode, SymmetricCipherContext.Operation operation) {
+    return switch (mode) {
+      case ECB, CTR, RANDOM_DELTA -> true;
+      case CBC, CFB -> operation == SymmetricCipherContext.Operation.DECRYPT;
+      default -> false;
+    };
+  }
+
+  void encrypt(Path source, Path target, FileProgress progress) throws IOException {
+    try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+         FileChannel output = openTarget(target)) {
+      long size = input.size();
+      long bulk = size - size % blockSize;
+      processWindows(input, output, bulk, SymmetricCipherContext.Operation.ENCRYPT, progress);
+
+      byte[] tail = new byte[blockSize];
+      int tailLength = readFully(input, tail, bulk, (int) (size - bulk));
+      int length = context.applyPadding(tail, tailLength);
+      context.processWithMode(tail, 0, length, SymmetricCipherContext.Operation.ENCRYPT,
+              context.registerAt(bulk / blockSize));
+      writeFully(output, tail, length, bulk);
+      progress.advance(tailLength);
+    }
+  }
+
+  void decrypt(Path source, Path target, FileProgress progress) throws IOException {
+    try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+         FileChannel output = openTarget(target)) {
+      long size = input.size();
+      if (size % blockSize != 0) {
+        throw new IllegalArgumentException("Message last block size is wrong.");
+      }
+      if (size == 0) {
+        return;
+      }
+      // последний блок несёт набивку и обрабатывается отдельно
+      long bulk = size - blockSize;
+      processWindows(input, output, bulk, SymmetricCipherContext.Operation.DECRYPT, progress);
+
+      byte[] last = new byte[blockSize];
+      readFully(input, last, bulk, blockSize);
+      byte[] register = registerBefore(input, bulk);
+      context.processWithMode(last, 0, blockSize, SymmetricCipherContext.Operation.DECRYPT, register);
+      writeFully(output, last, blockSize - context.paddingLength(last, blockSize), bulk);
+      progress.advance(blockSize);
+    }
+  }
+
+  private void processWindows(FileChannel input, FileChannel output, long length,
+                              SymmetricCipherContext.Operation operation, FileProgress progress) throws IOException {
+    for (long windowStart = 0; windowStart < length; windowStart += WINDOW_BYTES) {
+      processWindow(input, output, windowStart, Math.min(WINDOW_BYTES, length - windowStart), operation, progress);
+    }
+  }
+
+  /**
+   * Обрабатывает одно окно и сбрасывает его на диск. Ссылки на отображения живут только в этом
+   * методе, так что к следующему окну предыдущее уже недостижимо, и в памяти не копятся
+   * гигабайтные отображения. Освобождает отображение только сборщик мусора: на Windows, пока он
+   * этого не сделал, файл нельзя удалить или усечь, даже после закрытия каналов.
+   */
+  private void processWindow(FileChannel input, FileChannel output, long windowStart, long windowLength,
+                             SymmetricCipherContext.Operation operation, FileProgress progress) throws IOException {
+    MappedByteBuffer sourceWindow = input.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+    MappedByteBuffer targetWindow = output.map(FileChannel.MapMode.READ_WRITE, windowStart, windowLength);
+    byte[] windowRegister = chainsCiphertext ? registerBefore(input, windowStart) : null;
+    long firstBlockIndex = windowStart / blockSize;
+
+    scheduler.run((int) (windowLength / blockSize), blockSize, (firstBlock, count) -> {
+      int offset = firstBlock * blockSize;
+      int chunkLength = count * blockSize;
+      byte[] register;
+      if (!chainsCiphertext) {
+        register = context.registerAt(firstBlockIndex + firstBlock);
+      } else if (firstBlock == 0) {
+        register = windowRegister.clone();
+      } else {
+        register = new byte[blockSize];
+        sourceWindow.get(offset - blockSize, register, 0, blockSize);
+      }
+
+      byte[] work = workBuffers.get();
+      sourceWindow.get(offset, work, 0, chunkLength);
+      context.processWithMode(work, 0, chunkLength, operation, register);
+      targetWindow.put(offset, work, 0, chunkLength);
+      progress.advance(chunkLength);
+    });
+    targetWindow.force();
+  }
+
+  /**
+   * Состояние режима перед байтом {@code position}; для расшифровки CBC и CFB это предыдущий
+   * блок шифротекста.
+   */
+  private byte[] registerBefore(FileChannel input, long position) throws IOException {
+    if (!chainsCiphertext) {
+      return context.registerAt(position / blockSize);
+    }
+    if (position == 0) {
+      return context.initialRegister();
+    }
+    byte[] register = new byte[blockSize];
+    readFully(input, register, position - blockSize, blockSize);
+    return register;
+  }
+
+  private static FileChannel openTarget(Path target) throws IOException {
+    return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  static int readFully(FileChannel channel, byte[] data, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        break;
+      }
+    }
+    return buffer.position();
+  }
+
+  static void writeFully(FileChannel channel, byte[] data, int length, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+  }
+}
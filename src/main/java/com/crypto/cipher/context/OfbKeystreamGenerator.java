@@ -0,0 +1,149 @@
+package com.crypto.cipher.context;
+
+import com.crypto.cipher.SymmetricCipher;
+import com.crypto.util.BitUtils;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Гамма OFB, вырабатываемая заранее в фоновом потоке в кольцевой буфер ограниченного размера.
+ * Гамма не зависит от данных, поэтому её можно считать, пока данные ещё читаются; наложение
+ * гаммы сводится к xor из буфера. Потребитель один; гамма выдаётся строго по порядку.
+ * Производитель — виртуальный поток: пока кольцо заполнено, он не держит поток платформы, и
+ * много одновременно обрабатываемых файлов не плодят потоков ОС.
+ */
+final class OfbKeystreamGenerator implements AutoCloseable {
+
+  private static final int BATCHES = 8;
+
+  private final SymmetricCipher cipher;
+  private final int blockSize;
+  private final byte[] ring;
+  private final int batchBytes;
+  private final byte[] initialRegister;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private long produced;
+  private long consumed;
+  private boolean closed;
+  private Throwable failure;
+
+  /**
+   * @param capacityBytes примерный размер кольцевого буфера; округляется до целого числа пакетов
+   */
+  OfbKeystreamGenerator(SymmetricCipher cipher, byte[] initializationVector, int blockSize, int capacityBytes) {
+    if (initializationVector == null || initializationVector.length != blockSize) {
+      throw new IllegalStateException("Initialization vector must be present and match block size");
+    }
+    this.cipher = cipher;
+    this.blockSize = blockSize;
+    int batchBlocks = Math.max(1, capacityBytes / blockSize / BATCHES);
+    this.batchBytes = batchBlocks * blockSize;
+    this.ring = new byte[BATCHES * batchBytes];
+    this.initialRegister = initializationVector.clone();
+    Thread.ofVirtual().name("ofb-keystream").start(this::produce);
+  }
+
+  /**
+   * Накладывает следующие {@code length} байт гаммы на {@code data} начиная с {@code offset}.
+   * Ждёт, если гамма ещё не готова.
+   */
+  void xor(byte[] data, int offset, int length) {
+    while (length > 0) {
+      long available;
+      lock.lock();
+      try {
+        while (produced == consumed && failure == null && !closed) {
+          notEmpty.awaitUninterruptibly();
+        }
+        if (failure != null) {
+          throw new IllegalStateException("Keystream generation failed", failure);
+        }
+        if (closed) {
+          throw new IllegalStateException("Keystream generator is closed");
+        }
+        available = produced - consumed;
+      } finally {
+        lock.unlock();
+      }
+
+      int start = (int) (consumed % ring.length);
+      int count = (int) Math.min(Math.min(available, length), ring.length - start);
+      BitUtils.xor(data, offset, ring, start, data, offset, count);
+      offset += count;
+      length -= count;
+
+      lock.lock();
+      try {
+        consumed += count;
+        notFull.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      notFull.signalAll();
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Пакеты выровнены по размеру кольца и не переходят через его конец; предыдущий блок гаммы
+   * остаётся в кольце, пока производитель сам его не перезапишет.
+   */
+  private void produce() {
+    byte[] previous = initialRegister;
+    int previousOffset = 0;
+    long position = 0;
+    try {
+      while (true) {
+        lock.lock();
+        try {
+          while (!closed && ring.length - (position - consumed) < batchBytes) {
+            notFull.awaitUninterruptibly();
+          }
+          if (closed) {
+            return;
+          }
+        } finally {
+          lock.unlock();
+        }
+
+        int start = (int) (position % ring.length);
+        for (int offset = start; offset < start + batchBytes; offset += blockSize) {
+          cipher.encryptBlock(previous, previousOffset, ring, offset);
+          previous = ring;
+          previousOffset = offset;
+        }
+        position += batchBytes;
+
+        lock.lock();
+        try {
+          produced = position;
+          notEmpty.signal();
+        } finally {
+          lock.unlock();
+        }
+      }
+    } catch (RuntimeException | Error e) {
+      lock.lock();
+      try {
+        failure = e;
+        notEmpty.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
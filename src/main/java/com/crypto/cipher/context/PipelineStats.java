@@ -0,0 +1,41 @@
+package com.crypto.cipher.context;
+
+import lombok.Getter;
+
+/**
+ * Загрузка стадий конвейера обработки файла ({@link FilePipeline}): сколько времени каждая
+ * стадия работала и сколько простаивала в ожидании соседней стадии.
+ */
+@Getter
+public final class PipelineStats {
+
+  private final long bytes;
+  private final long readBusyNanos;
+  private final long readStallNanos;
+  private final long cipherBusyNanos;
+  private final long cipherStallNanos;
+  private final long writeBusyNanos;
+  private final long writeStallNanos;
+
+  PipelineStats(long bytes,
+                long readBusyNanos, long readStallNanos,
+                long cipherBusyNanos, long cipherStallNanos,
+                long writeBusyNanos, long writeStallNanos) {
+    this.bytes = bytes;
+    this.readBusyNanos = readBusyNanos;
+    this.readStallNanos = readStallNanos;
+    this.cipherBusyNanos = cipherBusyNanos;
+    this.cipherStallNanos = cipherStallNanos;
+    this.writeBusyNanos = writeBusyNanos;
+    this.writeStallNanos = writeStallNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d bytes; read %d/%d ms, cipher %d/%d ms, write %d/%d ms (busy/stall)",
+            bytes,
+            readBusyNanos / 1_000_000, readStallNanos / 1_000_000,
+            cipherBusyNanos / 1_000_000, cipherStallNanos / 1_000_000,
+            writeBusyNanos / 1_000_000, writeStallNanos / 1_000_000);
+  }
+}
@@ -2,26 +2,64 @@ package com.crypto.cipher.context;
 
 import com.crypto.cipher.SymmetricCipher;
 import com.crypto.util.BitUtils;
-import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
 import com.crypto.util.datatypes.Message;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
-import java.math.BigInteger;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
 
+@Slf4j
 public class SymmetricCipherContext {
 
+  /**
+   * С какого размера OFB вырабатывает гамму заранее в фоновом потоке: на меньших данных запуск
+   * потока не окупается.
+   */
+  private static final int OFB_READ_AHEAD_MIN_BYTES = 256 * 1024;
+  private static final int OFB_READ_AHEAD_BYTES = 64 * 1024;
+
+  /**
+   * Размер части файла в блоках при потоковой обработке.
+   */
+  private static final int FILE_CHUNK_BLOCKS = 1024;
+
+  /**
+   * С какого размера файлы режимов с независимыми блоками обрабатываются через отображение в
+   * память, см. {@link MappedFileCipher}.
+   */
+  private static final long MAPPED_MIN_BYTES = 1024 * 1024;
+
+  /**
+   * С какого размера остальные файлы обрабатываются конвейером, см. {@link FilePipeline}.
+   */
+  private static final long PIPELINE_MIN_BYTES = 256 * 1024;
+
+  /**
+   * Размер части контейнера по умолчанию, см. {@link ChunkedContainer}.
+   */
+  private static final int CONTAINER_CHUNK_BYTES = 1024 * 1024;
+
+  /**
+   * Каждая задача в своём виртуальном потоке: блокирующий ввод-вывод не занимает потоки пула,
+   * на котором считаются параллельные режимы.
+   */
+  private static final Executor VIRTUAL_THREAD_EXECUTOR =
+          task -> Thread.ofVirtual().name("cipher-file").start(task);
+
+  @Getter(AccessLevel.PACKAGE)
   private final EncryptionMode encryptionMode;
   private final byte[] initializationVector;
+  @Getter(AccessLevel.PACKAGE)
   private final PaddingMode paddingMode;
   private final Key key;
 
@@ -32,6 +70,29 @@ public class SymmetricCipherContext {
   @Getter
   private int blockSize;
 
+  private BlockScheduler scheduler = new BlockScheduler(ForkJoinPool.commonPool());
+
+  /**
+   * Раздаёт части {@link ChunkedContainer}: часть намного дороже блока, и оценка стоимости у неё
+   * своя.
+   */
+  private BlockScheduler chunkScheduler = scheduler.sibling();
+
+  /**
+   * Сколько памяти конвейер обработки файлов может занять буферами.
+   */
+  @Setter
+  @Getter
+  private int pipelineMemoryBytes = 4 * 1024 * 1024;
+
+  /**
+   * Длина счётчика CTR в байтах: младшие {@code counterSize} байт IV — счётчик, остальные — nonce.
+   * 0 — счётчик на весь блок.
+   */
+  @Setter
+  @Getter
+  private int counterSize;
+
   public enum EncryptionMode {
     ECB, CBC, PCBC, CFB, OFB, CTR, RANDOM_DELTA
   }
@@ -70,49 +131,136 @@ public class SymmetricCipherContext {
     symmetricCipher.setRoundKeys(key);
   }
 
+  /**
+   * Контекст с теми же параметрами и другим IV. Расписание ключей и пул не копируются, а
+   * используются совместно.
+   */
+  private SymmetricCipherContext(SymmetricCipherContext base, byte[] initializationVector) {
+    this.encryptionMode = base.encryptionMode;
+    this.paddingMode = base.paddingMode;
+    this.symmetricCipher = base.symmetricCipher;
+    this.initializationVector = initializationVector;
+    this.key = base.key;
+    this.blockSize = base.blockSize;
+    this.scheduler = base.scheduler;
+    this.chunkScheduler = base.chunkScheduler;
+    this.pipelineMemoryBytes = base.pipelineMemoryBytes;
+    this.counterSize = base.counterSize;
+  }
+
+  /**
+   * Контекст с собственным IV {@code E_K(IV ^ tweak)}: разные {@code tweak} дают независимые IV,
+   * по которым без ключа не восстановить ни IV, ни {@code tweak}. У ECB IV нет, и контекст
+   * возвращается как есть.
+   *
+   * @param tweak не длиннее блока; недостающие байты считаются нулевыми
+   */
+  SymmetricCipherContext withDerivedInitializationVector(byte[] tweak) {
+    if (encryptionMode == EncryptionMode.ECB) {
+      return this;
+    }
+    byte[] derived = initialRegister();
+    for (int i = 0; i < tweak.length; i++) {
+      derived[i] ^= tweak[i];
+    }
+    symmetricCipher.encryptBlock(derived, 0, derived, 0);
+    return new SymmetricCipherContext(this, derived);
+  }
+
+  /**
+   * Контекст с теми же параметрами, который обрабатывает всё в вызывающем потоке: для работы,
+   * которую уже распараллелили снаружи.
+   */
+  SymmetricCipherContext serial() {
+    SymmetricCipherContext serial = new SymmetricCipherContext(this, initializationVector);
+    serial.scheduler = BlockScheduler.serial();
+    serial.chunkScheduler = serial.scheduler;
+    return serial;
+  }
+
+  /**
+   * Пул, на котором выполняются параллельные режимы (ECB, CTR, RANDOM_DELTA, расшифровка CBC и
+   * CFB). По умолчанию {@link ForkJoinPool#commonPool()}; небольшие сообщения обрабатываются в
+   * вызывающем потоке в любом случае.
+   */
+  public void setExecutor(Executor executor) {
+    this.scheduler = new BlockScheduler(executor);
+    this.chunkScheduler = scheduler.sibling();
+  }
+
   public Message encrypt(Message toEncrypt) {
     blockSize = (toEncrypt.getBlockSize() <= 0) ? symmetricCipher.getBlockSize() : toEncrypt.getBlockSize();
 
-    Message message = new Message(toEncrypt);
+    int length = toEncrypt.getLength();
+    byte[] data = new byte[length + paddingSize(length)];
+    System.arraycopy(toEncrypt.getBuffer(), toEncrypt.getOffset(), data, 0, length);
 
-    Block[] blocks = message.getBlocks();
-    blocks[blocks.length - 1] = applyPadding(blocks[blocks.length - 1].getData(), message.getBlockSize());
-    blocks = processWithMode(encryptionMode, blocks, Operation.ENCRYPT);
-    return new Message(blocks, message.getBlockSize());
+    applyPadding(data, length);
+    processWithMode(data, 0, data.length, Operation.ENCRYPT, initialRegister());
+    return new Message(data, blockSize);
   }
 
   public Message decrypt(Message toDecrypt) {
     blockSize = (toDecrypt.getBlockSize() <= 0) ? symmetricCipher.getBlockSize() : toDecrypt.getBlockSize();
-    Message message = new Message(toDecrypt);
 
-    Block[] blocks = message.getBlocks();
-    if (blocks[blocks.length - 1].getData().length != blockSize) {
+    int length = toDecrypt.getLength();
+    if (length == 0) {
+      throw new IllegalArgumentException("Message contains no blocks");
+    }
+    if (length % blockSize != 0) {
       throw new IllegalArgumentException("Message last block size is wrong.");
     }
+    byte[] data = Arrays.copyOfRange(toDecrypt.getBuffer(), toDecrypt.getOffset(), toDecrypt.getOffset() + length);
+
+    processWithMode(data, 0, length, Operation.DECRYPT, initialRegister());
+    return new Message(data, 0, length - paddingLength(data, length), blockSize);
+  }
+
+  /**
+   * Сессия для шифрования данных по мере поступления, см. {@link CipherSession}.
+   */
+  public CipherSession encryptionSession() {
+    return newSession(Operation.ENCRYPT);
+  }
+
+  /**
+   * Сессия для расшифровки данных по мере поступления, см. {@link CipherSession}.
+   */
+  public CipherSession decryptionSession() {
+    return newSession(Operation.DECRYPT);
+  }
 
-    blocks = processWithMode(encryptionMode, blocks, Operation.DECRYPT);
-    Message decryptedMessage = new Message(blocks, blockSize);
-    removePadding(decryptedMessage);
+  private CipherSession newSession(Operation operation) {
+    if (blockSize <= 0) {
+      blockSize = symmetricCipher.getBlockSize();
+    }
+    return new CipherSession(this, operation);
+  }
 
-    return decryptedMessage;
+  private int paddingSize(int length) {
+    return (blockSize - (length % blockSize)) % blockSize;
   }
 
-  private Block applyPadding(byte[] block, int targetBlockSize) {
-    int paddingLength = (targetBlockSize - (block.length % targetBlockSize)) % targetBlockSize;
-    byte[] paddedData = Arrays.copyOf(block, block.length + paddingLength);
+  /**
+   * Дописывает набивку после первых {@code length} байт {@code data} и возвращает длину с ней.
+   * В {@code data} должно хватать места до границы блока.
+   */
+  int applyPadding(byte[] data, int length) {
+    int paddingLength = paddingSize(length);
+    int paddedLength = length + paddingLength;
     if (paddingLength != 0) {
       switch (paddingMode) {
         case ZEROS: {
-          Arrays.fill(paddedData, block.length, paddedData.length, (byte) 0x00);
+          Arrays.fill(data, length, paddedLength, (byte) 0x00);
           break;
         }
         case ANSI_X923: {
-          Arrays.fill(paddedData, block.length, paddedData.length - 1, (byte) 0x00);
-          paddedData[paddedData.length - 1] = (byte) paddingLength;
+          Arrays.fill(data, length, paddedLength - 1, (byte) 0x00);
+          data[paddedLength - 1] = (byte) paddingLength;
           break;
         }
         case PKCS7: {
-          Arrays.fill(paddedData, block.length, paddedData.length, (byte) paddingLength);
+          Arrays.fill(data, length, paddedLength, (byte) paddingLength);
           break;
         }
         case ISO_10126: {
@@ -120,310 +268,614 @@ public class SymmetricCipherContext {
           byte[] randomBytes = new byte[paddingLength - 1];
           random.nextBytes(randomBytes);
 
-          System.arraycopy(randomBytes, 0, paddedData, block.length, randomBytes.length);
-          paddedData[paddedData.length - 1] = (byte) paddingLength;
+          System.arraycopy(randomBytes, 0, data, length, randomBytes.length);
+          data[paddedLength - 1] = (byte) paddingLength;
           break;
         }
       }
     }
 
-    return new Block(paddedData);
+    return paddedLength;
   }
 
-  private void removePadding(Message message) {
-    Block[] blocks = message.getBlocks();
-    if (blocks.length == 0) {
-      throw new IllegalArgumentException("Message contains no blocks");
-    }
-
-    Block lastBlock = blocks[blocks.length - 1];
-    byte[] blockData = lastBlock.getData();
-
+  /**
+   * Длина набивки в конце последнего блока, который заканчивается на {@code end}.
+   */
+  int paddingLength(byte[] data, int end) {
+    int blockStart = Math.max(0, end - blockSize);
     int paddingLength = 0;
     switch (paddingMode) {
       case ZEROS:
-        while (paddingLength < blockData.length && blockData[blockData.length - 1 - paddingLength] == 0x00) {
+        while (end - paddingLength > blockStart && data[end - 1 - paddingLength] == 0x00) {
           paddingLength++;
         }
         break;
 
       case ANSI_X923, PKCS7, ISO_10126:
-        paddingLength = blockData[blockData.length - 1] & 0xFF;
+        paddingLength = data[end - 1] & 0xFF;
         if (paddingLength > blockSize) {
           //assuming there was no padding at all
-          return;
+          return 0;
         }
         break;
       default:
         throw new IllegalStateException("Unsupported padding mode: " + paddingMode);
     }
-
-    byte[] unpaddedData = Arrays.copyOf(blockData, blockData.length - paddingLength);
-
-    blocks[blocks.length - 1] = new Block(unpaddedData);
+    return paddingLength;
   }
 
-  private enum Operation {
+  enum Operation {
     ENCRYPT,
     DECRYPT
   }
 
-  private Block[] processWithMode(EncryptionMode mode, Block[] blocks, Operation operation) {
-    return switch (mode) {
-      case ECB -> processWithECB(blocks, operation);
-      case CBC -> processWithCBC(blocks, operation);
-      case PCBC -> processWithPCBC(blocks, operation);
-      case CFB -> processWithCFB(blocks, operation);
-      case OFB -> processWithOFB(blocks, operation);
-      case CTR -> processWithCTR(blocks, operation);
-      case RANDOM_DELTA -> processWithRandomDelta(blocks, operation);
-      default -> throw new IllegalArgumentException("Unsupported encryption mode: " + mode);
-    };
-  }
-
-  private Block[] processWithECB(Block[] blocks, Operation operation) {
-    return Arrays.stream(blocks)
-            .parallel()
-            .map(block -> {
-              byte[] processedData;
-              if (operation.equals(Operation.ENCRYPT)) {
-                processedData = symmetricCipher.encryptBlock(block).getData();
-              } else {
-                processedData = symmetricCipher.decryptBlock(block).getData();
-              }
-              return new Block(processedData);
-            })
-            .toArray(Block[]::new);
-  }
-
-  private Block[] processWithCBC(Block[] blocks, Operation operation) {
-
-    if (initializationVector != null && initializationVector.length != blockSize) {
-      throw new IllegalStateException("Initialization vector length does not match initialization vector length");
+  /**
+   * Начальное состояние режима, которое переносится между вызовами {@link #processWithMode}:
+   * предыдущий блок шифротекста для CBC и CFB, {@code P ^ C} для PCBC, регистр гаммы для OFB,
+   * следующий блок счётчика для CTR и следующее смещение для RANDOM_DELTA. У ECB состояния нет.
+   */
+  byte[] initialRegister() {
+    switch (encryptionMode) {
+      case ECB:
+        return null;
+      case CTR: {
+        int counterLength = (counterSize == 0) ? blockSize : counterSize;
+        if (counterLength < 1 || counterLength > blockSize) {
+          throw new IllegalStateException("Counter size must be between 1 and block size");
+        }
+        if (initializationVector == null) {
+          return new byte[blockSize];
+        }
+        if (initializationVector.length != blockSize) {
+          throw new IllegalStateException("Initialization vector must match block size");
+        }
+        return initializationVector.clone();
+      }
+      default:
+        requireInitializationVector();
+        return initializationVector.clone();
+    }
+  }
+
+  /**
+   * Состояние режима перед блоком {@code blockIndex} для режимов, где оно не зависит от
+   * предыдущих блоков: ECB, CTR и RANDOM_DELTA.
+   */
+  byte[] registerAt(long blockIndex) {
+    byte[] register = initialRegister();
+    switch (encryptionMode) {
+      case ECB -> {
+      }
+      case CTR -> {
+        int counterStart = blockSize - ((counterSize == 0) ? blockSize : counterSize);
+        BitUtils.addBigEndian(register, counterStart, blockSize, blockIndex);
+      }
+      case RANDOM_DELTA -> {
+        for (long remaining = blockIndex; remaining > 0; remaining -= Integer.MAX_VALUE) {
+          BitUtils.addMultipleBigEndian(register, 0, blockSize, initializationVector, blockSize / 2, blockSize,
+                  (int) Math.min(remaining, Integer.MAX_VALUE));
+        }
+      }
+      default -> throw new IllegalStateException("State of " + encryptionMode + " depends on previous blocks");
     }
+    return register;
+  }
 
-    final byte[][] previousBlock = {initializationVector};
-
-    return Arrays.stream(blocks)
-            .map(block -> {
-              byte[] processedData;
-
-              if (operation.equals(Operation.ENCRYPT)) {
-                byte[] xoredBlock = BitUtils.xor(block.getData(), previousBlock[0]);
-                Block encryptedBlock = symmetricCipher.encryptBlock(new Block(xoredBlock));
-                processedData = encryptedBlock.getData();
-                previousBlock[0] = processedData;
-              } else {
-                Block decryptedBlock = symmetricCipher.decryptBlock(block);
-                processedData = BitUtils.xor(decryptedBlock.getData(), previousBlock[0]);
-                previousBlock[0] = block.getData();
-              }
-
-              return new Block(processedData);
-            })
-            .toArray(Block[]::new);
-  }
-
-  private Block[] processWithOFB(Block[] blocks, Operation operation) {
-    final byte[][] previousBlock = {initializationVector};
-
-    return Arrays.stream(blocks)
-            .map(block -> {
-              byte[] currentBlockData = block.getData();
-              byte[] keyStream = symmetricCipher.encryptBlock(new Block(previousBlock[0])).getData();
-              byte[] processedData = BitUtils.xor(currentBlockData, keyStream);
-              previousBlock[0] = keyStream;
-              return new Block(processedData);
-            })
-            .toArray(Block[]::new);
-  }
-
-  private Block[] processWithCTR(Block[] blocks, Operation operation) {
-    AtomicInteger counter = new AtomicInteger(0);
-
-    return Arrays.stream(blocks)
-            .map(block -> {
-              byte[] currentBlockData = block.getData();
-              byte[] counterBlock = generateCounterBlock(counter.getAndIncrement());
-              byte[] keyStream = symmetricCipher.encryptBlock(new Block(counterBlock)).getData();
-              byte[] processedData = BitUtils.xor(currentBlockData, keyStream);
-              return new Block(processedData);
-            })
-            .toArray(Block[]::new);
-  }
-
-  private byte[] generateCounterBlock(int counterValue) {
-    byte[] counterBlock = new byte[this.blockSize];
-    ByteBuffer.wrap(counterBlock).putInt(counterValue);
-    return counterBlock;
-  }
-
-  private Block[] processWithPCBC(Block[] blocks, Operation operation) {
-    final byte[][] previousCipherBlock = {initializationVector};
-    final byte[][] previousPlainBlock = {new byte[blocks[0].getData().length]};
-
-    return Arrays.stream(blocks)
-            .map(block -> {
-              byte[] processedData;
-
-              if (operation.equals(Operation.ENCRYPT)) {
-                byte[] xoredBlock = BitUtils.xor(BitUtils.xor(block.getData(), previousPlainBlock[0]), previousCipherBlock[0]);
-                Block encryptedBlock = symmetricCipher.encryptBlock(new Block(xoredBlock));
-                processedData = encryptedBlock.getData();
-                previousCipherBlock[0] = processedData;
-                previousPlainBlock[0] = block.getData();
-              } else {
-                Block decryptedBlock = symmetricCipher.decryptBlock(block);
-                processedData = BitUtils.xor(BitUtils.xor(decryptedBlock.getData(), previousCipherBlock[0]), previousPlainBlock[0]);
-                previousCipherBlock[0] = block.getData();
-                previousPlainBlock[0] = processedData;
-              }
-
-              return new Block(processedData);
-            })
-            .toArray(Block[]::new);
-  }
-
-  private Block[] processWithCFB(Block[] blocks, Operation operation) {
-
-    final byte[][] previousBlock = {initializationVector};
-
-    return Arrays.stream(blocks).
-            map(block -> {
-              byte[] currentBlockData = block.getData();
-              byte[] processedData;
-
-              if (operation.equals(Operation.ENCRYPT)) {
-                byte[] keyStream = symmetricCipher.encryptBlock(new Block(previousBlock[0])).getData();
-                processedData = BitUtils.xor(currentBlockData, keyStream);
-                previousBlock[0] = processedData;
-              } else {
-                byte[] keyStream = symmetricCipher.encryptBlock(new Block(previousBlock[0])).getData();
-                processedData = BitUtils.xor(currentBlockData, keyStream);
-                previousBlock[0] = block.getData();
-              }
-
-              return new Block(processedData);
-            }).
-            toArray(Block[]::new);
-  }
-
-  private byte[] ensureLength(byte[] input, int targetLength) {
-    if (input.length >= targetLength) {
-      return Arrays.copyOf(input, targetLength);
+  /**
+   * Обрабатывает на месте {@code length} байт {@code data}, начиная с {@code from};
+   * {@code length} кратна размеру блока. {@code register} хранит состояние режима из
+   * {@link #initialRegister()} и сдвигается за обработанные блоки, так что последовательные вызовы
+   * продолжают один поток.
+   */
+  void processWithMode(byte[] data, int from, int length, Operation operation, byte[] register) {
+    if (length == 0) {
+      return;
+    }
+    switch (encryptionMode) {
+      case ECB -> processWithECB(data, from, length, operation);
+      case CBC -> processWithCBC(data, from, length, operation, register);
+      case PCBC -> processWithPCBC(data, from, length, operation, register);
+      case CFB -> processWithCFB(data, from, length, operation, register);
+      case OFB -> processWithOFB(data, from, length, register);
+      case CTR -> processWithCTR(data, from, length, register);
+      case RANDOM_DELTA -> processWithRandomDelta(data, from, length, operation, register);
+      default -> throw new IllegalArgumentException("Unsupported encryption mode: " + encryptionMode);
+    }
+  }
+
+  private void processWithECB(byte[] data, int from, int length, Operation operation) {
+    int blockCount = length / blockSize;
+    scheduler.run(blockCount, blockSize, (firstBlock, count) -> {
+      int offset = from + firstBlock * blockSize;
+      if (operation == Operation.ENCRYPT) {
+        symmetricCipher.encryptBlocks(data, offset, data, offset, count);
+      } else {
+        symmetricCipher.decryptBlocks(data, offset, data, offset, count);
+      }
+    });
+  }
+
+  private void processWithCBC(byte[] data, int from, int length, Operation operation, byte[] register) {
+    int end = from + length;
+    if (operation == Operation.ENCRYPT) {
+      byte[] previous = register;
+      int previousOffset = 0;
+      for (int offset = from; offset < end; offset += blockSize) {
+        BitUtils.xor(data, offset, previous, previousOffset, data, offset, blockSize);
+        symmetricCipher.encryptBlock(data, offset, data, offset);
+        previous = data;
+        previousOffset = offset;
+      }
+      System.arraycopy(data, end - blockSize, register, 0, blockSize);
+    } else {
+      decryptChained(data, from, length, EncryptionMode.CBC, register);
+    }
+  }
+
+  /**
+   * На больших сообщениях гамма вырабатывается в отдельном потоке, а здесь только накладывается.
+   */
+  private void processWithOFB(byte[] data, int from, int length, byte[] register) {
+    int end = from + length;
+    if (useOfbReadAhead(length)) {
+      byte[] lastBlock = Arrays.copyOfRange(data, end - blockSize, end);
+      try (OfbKeystreamGenerator keyStream =
+                   new OfbKeystreamGenerator(symmetricCipher, register, blockSize, OFB_READ_AHEAD_BYTES)) {
+        keyStream.xor(data, from, length);
+      }
+      // последний блок гаммы восстанавливается из последнего блока до и после наложения
+      BitUtils.xor(lastBlock, 0, data, end - blockSize, register, 0, blockSize);
+      return;
+    }
+
+    for (int offset = from; offset < end; offset += blockSize) {
+      symmetricCipher.encryptBlock(register, 0, register, 0);
+      BitUtils.xor(data, offset, register, 0, data, offset, blockSize);
+    }
+  }
+
+  /**
+   * Блок счётчика {@code i} — IV, к младшим {@code counterSize} байтам которого прибавлено
+   * {@code i} по модулю {@code 2^(8 * counterSize)}; без IV счёт идёт от нуля. Каждая часть сама
+   * вычисляет свой начальный счётчик, шифрует гамму целиком и накладывает её одним xor.
+   */
+  private void processWithCTR(byte[] data, int from, int length, byte[] register) {
+    int counterStart = blockSize - ((counterSize == 0) ? blockSize : counterSize);
+    int blockCount = length / blockSize;
+    scheduler.run(blockCount, blockSize, (firstBlock, count) -> {
+      byte[] keyStream = new byte[count * blockSize];
+
+      System.arraycopy(register, 0, keyStream, 0, blockSize);
+      BitUtils.addBigEndian(keyStream, counterStart, blockSize, firstBlock);
+      for (int offset = blockSize; offset < keyStream.length; offset += blockSize) {
+        System.arraycopy(keyStream, offset - blockSize, keyStream, offset, blockSize);
+        BitUtils.addBigEndian(keyStream, offset + counterStart, offset + blockSize, 1);
+      }
+
+      symmetricCipher.encryptBlocks(keyStream, 0, keyStream, 0, count);
+      int offset = from + firstBlock * blockSize;
+      BitUtils.xor(data, offset, keyStream, 0, data, offset, keyStream.length);
+    });
+    BitUtils.addBigEndian(register, counterStart, blockSize, blockCount);
+  }
+
+  /**
+   * Хранит {@code P(i-1) ^ C(i-1)} в {@code feedback}, начиная с {@code IV} (открытый текст перед
+   * первым блоком считается нулевым).
+   */
+  private void processWithPCBC(byte[] data, int from, int length, Operation operation, byte[] feedback) {
+    byte[] saved = new byte[blockSize];
+
+    for (int offset = from; offset < from + length; offset += blockSize) {
+      System.arraycopy(data, offset, saved, 0, blockSize);
+      if (operation == Operation.ENCRYPT) {
+        BitUtils.xor(data, offset, feedback, 0, data, offset, blockSize);
+        symmetricCipher.encryptBlock(data, offset, data, offset);
+      } else {
+        symmetricCipher.decryptBlock(data, offset, data, offset);
+        BitUtils.xor(data, offset, feedback, 0, data, offset, blockSize);
+      }
+      BitUtils.xor(saved, 0, data, offset, feedback, 0, blockSize);
+    }
+  }
+
+  private void processWithCFB(byte[] data, int from, int length, Operation operation, byte[] register) {
+    int end = from + length;
+    if (operation == Operation.ENCRYPT) {
+      byte[] keyStream = new byte[blockSize];
+      byte[] previous = register;
+      int previousOffset = 0;
+      for (int offset = from; offset < end; offset += blockSize) {
+        symmetricCipher.encryptBlock(previous, previousOffset, keyStream, 0);
+        BitUtils.xor(data, offset, keyStream, 0, data, offset, blockSize);
+        previous = data;
+        previousOffset = offset;
+      }
+      System.arraycopy(data, end - blockSize, register, 0, blockSize);
     } else {
-      byte[] result = new byte[targetLength];
-      System.arraycopy(input, 0, result, targetLength - input.length, input.length);
-      return result;
+      decryptChained(data, from, length, EncryptionMode.CFB, register);
     }
   }
 
-  private byte[] generateKeystreamBlock(byte[] iv, BigInteger delta, int index) {
-    BigInteger init = new BigInteger(1, iv); // положительное число
-    BigInteger keystreamValue = init.add(delta.multiply(BigInteger.valueOf(index)));
-    byte[] rawBytes = keystreamValue.toByteArray();
-    return ensureLength(rawBytes, blockSize);
+  /**
+   * Расшифровка CBC и CFB по частям параллельно: открытый блок зависит только от своего и
+   * предыдущего блока шифротекста. Блоки на стыках частей сохраняются до запуска, потом каждая
+   * часть копирует свои «предыдущие» блоки и обрабатывает их одним пакетным вызовом.
+   */
+  private void decryptChained(byte[] data, int from, int length, EncryptionMode mode, byte[] register) {
+    int blockCount = length / blockSize;
+    int chunkBlocks = scheduler.chunkBlocks(blockSize);
+    int chunkCount = (blockCount + chunkBlocks - 1) / chunkBlocks;
+
+    byte[] chainingValues = new byte[chunkCount * blockSize];
+    System.arraycopy(register, 0, chainingValues, 0, blockSize);
+    for (int chunk = 1; chunk < chunkCount; chunk++) {
+      System.arraycopy(data, from + (chunk * chunkBlocks - 1) * blockSize, chainingValues, chunk * blockSize, blockSize);
+    }
+    System.arraycopy(data, from + length - blockSize, register, 0, blockSize);
+
+    scheduler.run(blockCount, blockSize, (firstBlock, count) -> {
+      int offset = from + firstBlock * blockSize;
+      byte[] previous = new byte[count * blockSize];
+      System.arraycopy(chainingValues, firstBlock / chunkBlocks * blockSize, previous, 0, blockSize);
+      System.arraycopy(data, offset, previous, blockSize, previous.length - blockSize);
+
+      if (mode == EncryptionMode.CBC) {
+        symmetricCipher.decryptBlocks(data, offset, data, offset, count);
+      } else {
+        symmetricCipher.encryptBlocks(previous, 0, previous, 0, count);
+      }
+      BitUtils.xor(data, offset, previous, 0, data, offset, previous.length);
+    });
   }
 
-  private Block[] processWithRandomDelta(Block[] blocks, Operation operation) {
+  /**
+   * Фоновая гамма OFB для {@code length} байт с начала потока или {@code null}, если гамму
+   * выгоднее считать на месте: в других режимах, на небольших данных и на одном ядре.
+   */
+  OfbKeystreamGenerator startOfbKeystream(long length) {
+    if (encryptionMode != EncryptionMode.OFB || !useOfbReadAhead(length)) {
+      return null;
+    }
+    return new OfbKeystreamGenerator(symmetricCipher, initializationVector, blockSize, OFB_READ_AHEAD_BYTES);
+  }
 
+  private static boolean useOfbReadAhead(long length) {
+    return length >= OFB_READ_AHEAD_MIN_BYTES && Runtime.getRuntime().availableProcessors() > 1;
+  }
+
+  private void requireInitializationVector() {
     if (initializationVector == null || initializationVector.length != blockSize) {
       throw new IllegalStateException("Initialization vector must be present and match block size");
     }
+  }
 
+  /**
+   * Блок {@code i} смешивается со смещением {@code IV + i * delta mod 2^(8 * blockSize)}, где
+   * delta — младшая половина IV. Часть вычисляет смещение своего первого блока умножением, а
+   * дальше прибавляет delta к предыдущему.
+   */
+  private void processWithRandomDelta(byte[] data, int from, int length, Operation operation, byte[] register) {
     int half = blockSize / 2;
-    byte[] deltaBytes = Arrays.copyOfRange(initializationVector, half, blockSize);
-    BigInteger delta = new BigInteger(1, deltaBytes);
-
-    return Arrays.stream(blocks)
-            .parallel()
-            .map(block -> {
-              int index = Arrays.asList(blocks).indexOf(block);
-              byte[] keystream = generateKeystreamBlock(initializationVector, delta, index);
-              byte[] data = block.getData();
-
-              byte[] processed;
-              if (operation == Operation.ENCRYPT) {
-                byte[] xorWithKeystream = BitUtils.xor(data, keystream);
-                processed = symmetricCipher.encryptBlock(new Block(xorWithKeystream)).getData();
-              } else {
-                byte[] decrypted = symmetricCipher.decryptBlock(new Block(data)).getData();
-                processed = BitUtils.xor(decrypted, keystream);
-              }
-              return new Block(processed);
-            })
-            .toArray(Block[]::new);
+    int blockCount = length / blockSize;
+    scheduler.run(blockCount, blockSize, (firstBlock, count) -> {
+      int offset = from + firstBlock * blockSize;
+      byte[] deltas = new byte[count * blockSize];
+
+      System.arraycopy(register, 0, deltas, 0, blockSize);
+      BitUtils.addMultipleBigEndian(deltas, 0, blockSize, initializationVector, half, blockSize, firstBlock);
+      for (int i = blockSize; i < deltas.length; i += blockSize) {
+        System.arraycopy(deltas, i - blockSize, deltas, i, blockSize);
+        BitUtils.addMultipleBigEndian(deltas, i, i + blockSize, initializationVector, half, blockSize, 1);
+      }
+
+      if (operation == Operation.ENCRYPT) {
+        BitUtils.xor(data, offset, deltas, 0, data, offset, deltas.length);
+        symmetricCipher.encryptBlocks(data, offset, data, offset, count);
+      } else {
+        symmetricCipher.decryptBlocks(data, offset, data, offset, count);
+        BitUtils.xor(data, offset, deltas, 0, data, offset, deltas.length);
+      }
+    });
+    BitUtils.addMultipleBigEndian(register, 0, blockSize, initializationVector, half, blockSize, blockCount);
+  }
+
+  /**
+   * Исполнитель, запускающий каждую задачу в отдельном виртуальном потоке; подходит для
+   * одновременной обработки большого числа файлов.
+   */
+  public static Executor virtualThreadExecutor() {
+    return VIRTUAL_THREAD_EXECUTOR;
   }
 
+  /**
+   * Шифрует файл в виртуальном потоке, см. {@link #encrypt(String, String, Executor, LongConsumer)}.
+   */
   public CompletableFuture<Void> encrypt(String sourceFilePath, String encryptedFilePath) {
-    if (this.blockSize <= 0) {
-      throw new IllegalStateException("blockSize must be greater than 0");
-    }
-    return CompletableFuture.runAsync(() -> {
-      try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(sourceFilePath));
-           BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(encryptedFilePath))) {
-
-        byte[] buffer = new byte[1024 * blockSize];
-        int bytesRead;
-        boolean isLastBlock = false;
-
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-          if (bytesRead < buffer.length) {
-            buffer = Arrays.copyOf(buffer, bytesRead);
-            buffer = applyPadding(buffer, blockSize).getData();
-            isLastBlock = true;
-          }
+    return encrypt(sourceFilePath, encryptedFilePath, VIRTUAL_THREAD_EXECUTOR, null);
+  }
 
-          List<Block> blocks = splitIntoBlocks(buffer, bytesRead, blockSize);
-          Block[] encryptedBlocks = processWithMode(encryptionMode, blocks.toArray(new Block[0]), Operation.ENCRYPT);
-          for (Block block : encryptedBlocks) {
-            outputStream.write(block.getData());
-          }
-          if (isLastBlock) {
-            break;
-          }
-        }
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
+  public CompletableFuture<Void> encrypt(String sourceFilePath, String encryptedFilePath, Executor executor) {
+    return encrypt(sourceFilePath, encryptedFilePath, executor, null);
+  }
+
+  /**
+   * Шифрует файл на {@code executor}. Большие файлы в режимах с независимыми блоками
+   * обрабатываются параллельно через отображение в память ({@link MappedFileCipher}), остальные
+   * крупные — конвейером ({@link FilePipeline}), мелкие — потоком.
+   * <p>
+   * Отмена возвращённого future останавливает обработку на границе очередной части; итоговый
+   * файл при этом остаётся недописанным.
+   *
+   * @param progressListener получает число обработанных байт исходного файла; может быть
+   *                         {@code null}
+   */
+  public CompletableFuture<Void> encrypt(String sourceFilePath, String encryptedFilePath,
+                                         Executor executor, LongConsumer progressListener) {
+    return runFileTask(executor, progressListener, progress -> {
+      encryptFile(sourceFilePath, encryptedFilePath, progress);
+      return null;
     });
   }
 
+  /**
+   * Расшифровывает файл в виртуальном потоке, см. {@link #decrypt(String, String, Executor, LongConsumer)}.
+   */
   public CompletableFuture<Void> decrypt(String encryptedFilePath, String decryptedFilePath) {
+    return decrypt(encryptedFilePath, decryptedFilePath, VIRTUAL_THREAD_EXECUTOR, null);
+  }
+
+  public CompletableFuture<Void> decrypt(String encryptedFilePath, String decryptedFilePath, Executor executor) {
+    return decrypt(encryptedFilePath, decryptedFilePath, executor, null);
+  }
+
+  /**
+   * Расшифровывает файл на {@code executor}; выбор способа обработки, отмена и ход — как в
+   * {@link #encrypt(String, String, Executor, LongConsumer)}.
+   */
+  public CompletableFuture<Void> decrypt(String encryptedFilePath, String decryptedFilePath,
+                                         Executor executor, LongConsumer progressListener) {
+    return runFileTask(executor, progressListener, progress -> {
+      decryptFile(encryptedFilePath, decryptedFilePath, progress);
+      return null;
+    });
+  }
+
+  /**
+   * Шифрует все файлы дерева {@code sourceRoot} в дерево {@code targetRoot} той же структуры,
+   * см. {@link #encryptDirectory(Path, Path, Executor, LongConsumer)}.
+   */
+  public CompletableFuture<DirectorySummary> encryptDirectory(Path sourceRoot, Path targetRoot) {
+    return encryptDirectory(sourceRoot, targetRoot, VIRTUAL_THREAD_EXECUTOR, null);
+  }
+
+  public CompletableFuture<DirectorySummary> encryptDirectory(Path sourceRoot, Path targetRoot,
+                                                              LongConsumer progressListener) {
+    return encryptDirectory(sourceRoot, targetRoot, VIRTUAL_THREAD_EXECUTOR, progressListener);
+  }
+
+  /**
+   * Шифрует все файлы дерева {@code sourceRoot} в дерево {@code targetRoot} той же структуры;
+   * обход дерева идёт на {@code executor}, мелкие файлы — в отдельных виртуальных потоках.
+   * Каждый файл шифруется со своим IV, выведенным из IV контекста и относительного пути файла,
+   * поэтому для расшифровки достаточно этого контекста и той же структуры дерева. Ошибка в одном
+   * файле не останавливает остальные и попадает в {@link DirectorySummary#getFailures()}.
+   *
+   * @param progressListener получает общее число обработанных байт всех файлов; может быть
+   *                         {@code null}
+   */
+  public CompletableFuture<DirectorySummary> encryptDirectory(Path sourceRoot, Path targetRoot,
+                                                              Executor executor, LongConsumer progressListener) {
+    return runFileTask(executor, progressListener,
+            progress -> new DirectoryCipher(this).run(sourceRoot, targetRoot, Operation.ENCRYPT, progress));
+  }
+
+  public CompletableFuture<DirectorySummary> decryptDirectory(Path sourceRoot, Path targetRoot) {
+    return decryptDirectory(sourceRoot, targetRoot, VIRTUAL_THREAD_EXECUTOR, null);
+  }
+
+  public CompletableFuture<DirectorySummary> decryptDirectory(Path sourceRoot, Path targetRoot,
+                                                              LongConsumer progressListener) {
+    return decryptDirectory(sourceRoot, targetRoot, VIRTUAL_THREAD_EXECUTOR, progressListener);
+  }
+
+  /**
+   * Расшифровывает дерево, зашифрованное {@link #encryptDirectory(Path, Path, Executor, LongConsumer)}.
+   */
+  public CompletableFuture<DirectorySummary> decryptDirectory(Path sourceRoot, Path targetRoot,
+                                                              Executor executor, LongConsumer progressListener) {
+    return runFileTask(executor, progressListener,
+            progress -> new DirectoryCipher(this).run(sourceRoot, targetRoot, Operation.DECRYPT, progress));
+  }
+
+  /**
+   * Шифрует файл в контейнер частями по 1 МБ, см.
+   * {@link #encryptChunked(String, String, int, Executor, LongConsumer)}.
+   */
+  public CompletableFuture<Void> encryptChunked(String sourceFilePath, String containerFilePath) {
+    return encryptChunked(sourceFilePath, containerFilePath, CONTAINER_CHUNK_BYTES, VIRTUAL_THREAD_EXECUTOR, null);
+  }
+
+  public CompletableFuture<Void> encryptChunked(String sourceFilePath, String containerFilePath, int chunkSize,
+                                                LongConsumer progressListener) {
+    return encryptChunked(sourceFilePath, containerFilePath, chunkSize, VIRTUAL_THREAD_EXECUTOR, progressListener);
+  }
+
+  /**
+   * Шифрует файл в контейнер {@link ChunkedContainer}: части сцепляются независимо, поэтому
+   * шифруются параллельно в любом режиме, включая CBC, PCBC, CFB и OFB. Результат отличается от
+   * {@link #encrypt(String, String)} и читается только {@link #decryptChunked} и
+   * {@link ChunkedContainer}. Чтение и запись идут на {@code executor}, шифрование частей — на
+   * исполнителе контекста.
+   *
+   * @param chunkSize размер части в байтах, кратный размеру блока
+   */
+  public CompletableFuture<Void> encryptChunked(String sourceFilePath, String containerFilePath, int chunkSize,
+                                                Executor executor, LongConsumer progressListener) {
+    return runFileTask(executor, progressListener, progress -> {
+      ChunkedContainer.create(this, chunkScheduler, Path.of(sourceFilePath), Path.of(containerFilePath), chunkSize,
+              progress);
+      return null;
+    });
+  }
+
+  public CompletableFuture<Void> decryptChunked(String containerFilePath, String decryptedFilePath) {
+    return decryptChunked(containerFilePath, decryptedFilePath, VIRTUAL_THREAD_EXECUTOR, null);
+  }
+
+  public CompletableFuture<Void> decryptChunked(String containerFilePath, String decryptedFilePath,
+                                                LongConsumer progressListener) {
+    return decryptChunked(containerFilePath, decryptedFilePath, VIRTUAL_THREAD_EXECUTOR, progressListener);
+  }
+
+  /**
+   * Расшифровывает контейнер, записанный {@link #encryptChunked}; части — параллельно.
+   */
+  public CompletableFuture<Void> decryptChunked(String containerFilePath, String decryptedFilePath,
+                                                Executor executor, LongConsumer progressListener) {
+    return runFileTask(executor, progressListener, progress -> {
+      try (ChunkedContainer container = ChunkedContainer.open(this, Path.of(containerFilePath))) {
+        container.extract(chunkScheduler, Path.of(decryptedFilePath), progress);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * @return загрузка стадий, если файл прошёл через конвейер, иначе {@code null}; своя у каждого
+   * вызова, так что одновременные задачи её не перетирают
+   */
+  PipelineStats encryptFile(String sourceFilePath, String encryptedFilePath, FileProgress progress)
+          throws IOException {
+    long size = new File(sourceFilePath).length();
+    if (useMappedFile(size, Operation.ENCRYPT)) {
+      new MappedFileCipher(this, scheduler).encrypt(Path.of(sourceFilePath), Path.of(encryptedFilePath), progress);
+    } else if (size >= PIPELINE_MIN_BYTES) {
+      return runPipeline(sourceFilePath, encryptedFilePath, Operation.ENCRYPT, progress);
+    } else {
+      encryptStream(sourceFilePath, encryptedFilePath, progress);
+    }
+    return null;
+  }
+
+  /**
+   * @return как у {@link #encryptFile(String, String, FileProgress)}
+   */
+  PipelineStats decryptFile(String encryptedFilePath, String decryptedFilePath, FileProgress progress)
+          throws IOException {
+    long size = new File(encryptedFilePath).length();
+    if (useMappedFile(size, Operation.DECRYPT)) {
+      new MappedFileCipher(this, scheduler).decrypt(Path.of(encryptedFilePath), Path.of(decryptedFilePath), progress);
+    } else if (size >= PIPELINE_MIN_BYTES) {
+      return runPipeline(encryptedFilePath, decryptedFilePath, Operation.DECRYPT, progress);
+    } else {
+      decryptStream(encryptedFilePath, decryptedFilePath, progress);
+    }
+    return null;
+  }
+
+  @FunctionalInterface
+  private interface FileTask<T> {
+    T run(FileProgress progress) throws IOException;
+  }
+
+  private <T> CompletableFuture<T> runFileTask(Executor executor, LongConsumer progressListener, FileTask<T> task) {
     if (this.blockSize <= 0) {
       throw new IllegalStateException("blockSize must be greater than 0");
     }
-    return CompletableFuture.runAsync(() -> {
-      try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(encryptedFilePath));
-           BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(decryptedFilePath))) {
-        byte[] buffer = new byte[1024 * blockSize];
-        int bytesRead;
-
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-          List<Block> blocks = splitIntoBlocks(buffer, bytesRead, blockSize);
-          Block[] decryptedBlocks = processWithMode(encryptionMode, blocks.toArray(new Block[0]), Operation.DECRYPT);
-
-          if (bytesRead < buffer.length) {
-            Message decryptedMessage = new Message(decryptedBlocks, blockSize);
-            removePadding(decryptedMessage);
-          }
-
-          for (Block block : decryptedBlocks) {
-            outputStream.write(block.getData());
-          }
-        }
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor must not be null");
+    }
+    CompletableFuture<T> future = new CompletableFuture<>();
+    FileProgress progress = new FileProgress(future, progressListener);
+    executor.execute(() -> {
+      try {
+        progress.checkCancelled();
+        future.complete(task.run(progress));
       } catch (IOException e) {
-        throw new RuntimeException(e);
+        future.completeExceptionally(new RuntimeException(e));
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
       }
     });
+    return future;
+  }
+
+  private PipelineStats runPipeline(String sourceFilePath, String targetFilePath, Operation operation,
+                                    FileProgress progress) throws IOException {
+    PipelineStats stats = new FilePipeline(this, pipelineMemoryBytes)
+            .run(sourceFilePath, targetFilePath, operation, progress);
+    log.debug("{} {} with {}: {}", operation, sourceFilePath, encryptionMode, stats);
+    return stats;
+  }
+
+  /**
+   * Обрабатывается ли файл размера {@code size} параллельно через отображение в память.
+   */
+  boolean useMappedFile(long size, Operation operation) {
+    return MappedFileCipher.supports(encryptionMode, operation) && size >= MAPPED_MIN_BYTES;
+  }
+
+  /**
+   * Шифрует файл потоком: состояние режима переносится между частями, так что результат
+   * совпадает с {@link #encrypt(Message)} над всем файлом. Набивка добавляется только в конце.
+   */
+  private void encryptStream(String sourceFilePath, String encryptedFilePath,
+                             FileProgress progress) throws IOException {
+    byte[] register = initialRegister();
+    try (InputStream inputStream = new FileInputStream(sourceFilePath);
+         OutputStream outputStream = new FileOutputStream(encryptedFilePath)) {
+
+      byte[] buffer = new byte[FILE_CHUNK_BLOCKS * blockSize];
+      int bytesRead;
+      do {
+        bytesRead = inputStream.readNBytes(buffer, 0, buffer.length);
+        // неполная часть — последняя; полная часть кратна блоку и набивки не требует
+        int length = (bytesRead < buffer.length) ? applyPadding(buffer, bytesRead) : bytesRead;
+
+        processWithMode(buffer, 0, length, Operation.ENCRYPT, register);
+        outputStream.write(buffer, 0, length);
+        progress.advance(bytesRead);
+      } while (bytesRead == buffer.length);
+    }
   }
 
-  private List<Block> splitIntoBlocks(byte[] data, int length, int blockSize) {
-    List<Block> blocks = new ArrayList<>();
-    for (int i = 0; i < length; i += blockSize) {
-      blocks.add(new Block(Arrays.copyOfRange(data, i, i + blockSize)));
+  /**
+   * Расшифровывает файл потоком. Последний блок каждой полной части придерживается до
+   * следующего чтения: набивка снимается только с настоящего последнего блока файла, даже если
+   * длина файла кратна размеру части.
+   */
+  private void decryptStream(String encryptedFilePath, String decryptedFilePath,
+                             FileProgress progress) throws IOException {
+    byte[] register = initialRegister();
+    try (InputStream inputStream = new FileInputStream(encryptedFilePath);
+         OutputStream outputStream = new FileOutputStream(decryptedFilePath)) {
+
+      byte[] buffer = new byte[FILE_CHUNK_BLOCKS * blockSize];
+      int pending = 0;
+      while (true) {
+        int available = pending + inputStream.readNBytes(buffer, pending, buffer.length - pending);
+        boolean isLast = available < buffer.length;
+        if (available % blockSize != 0) {
+          throw new IllegalArgumentException("Message last block size is wrong.");
+        }
+        int length = isLast ? available : available - blockSize;
+
+        processWithMode(buffer, 0, length, Operation.DECRYPT, register);
+
+        if (isLast) {
+          if (length > 0) {
+            outputStream.write(buffer, 0, length - paddingLength(buffer, length));
+          }
+          progress.advance(length);
+          break;
+        }
+        outputStream.write(buffer, 0, length);
+        progress.advance(length);
+        System.arraycopy(buffer, length, buffer, 0, blockSize);
+        pending = blockSize;
+      }
     }
-    return blocks;
   }
 
 }
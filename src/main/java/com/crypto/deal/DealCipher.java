@@ -1,34 +1,38 @@
 package com.crypto.deal;
 
-import com.crypto.cipher.FeistelNetwork;
-import com.crypto.util.datatypes.Block;
+import com.crypto.cipher.LongFeistelNetwork;
+import com.crypto.des.FastDesCipher;
+import com.crypto.util.datatypes.Key;
+import com.crypto.util.datatypes.RoundKey;
 
-public class DealCipher extends FeistelNetwork {
+/**
+ * DEAL on 64-bit halves: the round function is DES keyed with the round key. The schedule holds
+ * the 16 DES round keys of every DEAL round back to back, so each DES key is expanded once.
+ */
+public class DealCipher extends LongFeistelNetwork {
 
-  public DealCipher() {
-    super(new DealCipherTransformation(), new DealKeyExpansion());
-  }
+  private static final int DES_ROUND_KEYS = 16;
 
-  @Override
-  public int getBlockSize() {
-    return 16;
+  private final DealKeyExpansion keyExpansion = new DealKeyExpansion();
+  private final FastDesCipher des = new FastDesCipher();
+
+  public DealCipher() {
+    super(DES_ROUND_KEYS);
   }
 
   @Override
-  public Block encryptBlock(Block block) {
-    if (block.getData().length != 16) {
-      throw new IllegalArgumentException("Block data length must be 16 bytes");
+  protected long[] expandKey(Key key) {
+    RoundKey[] roundKeys = keyExpansion.generateRoundKeys(key);
+    long[] schedule = new long[roundKeys.length * DES_ROUND_KEYS];
+    for (int i = 0; i < roundKeys.length; i++) {
+      long[] desKeys = des.expandKey(new Key(roundKeys[i].getData()));
+      System.arraycopy(desKeys, 0, schedule, i * DES_ROUND_KEYS, DES_ROUND_KEYS);
     }
-
-    return super.encryptBlock(block);
+    return schedule;
   }
 
   @Override
-  public Block decryptBlock(Block block) {
-    if (block.getData().length != 16) {
-      throw new IllegalArgumentException("Block data length must be 16");
-    }
-
-    return super.decryptBlock(block);
+  protected long f(long half, long[] roundKeys, int offset) {
+    return des.encrypt(half, roundKeys, offset);
   }
 }
@@ -4,6 +4,13 @@ import com.crypto.cipher.transformation.CipherTransformation;
 import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.RoundKey;
 
+/**
+ * DEAL round function as a {@link CipherTransformation}.
+ *
+ * @deprecated builds a {@link DesToCipherTransformationAdapter} and a DES key schedule on every
+ * call; {@link DealCipher} runs its rounds on prepared schedules.
+ */
+@Deprecated
 public class DealCipherTransformation implements CipherTransformation {
   @Override
   public Block transform(Block block, RoundKey roundKey) {
@@ -1,7 +1,7 @@
 package com.crypto.deal;
 
 import com.crypto.cipher.keyexpansion.KeyExpansion;
-import com.crypto.des.DesCipher;
+import com.crypto.des.FastDesCipher;
 import com.crypto.util.BitUtils;
 import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
@@ -12,6 +12,16 @@ import static com.crypto.deal.config.DealConfig.fixedInitializationVector;
 
 public class DealKeyExpansion implements KeyExpansion {
 
+  /**
+   * DES keyed with {@code fixedDesKey}. The schedule never changes, so it is expanded once per JVM
+   * and shared; encryption does not modify the cipher.
+   */
+  private static final FastDesCipher FIXED_KEY_CIPHER = new FastDesCipher();
+
+  static {
+    FIXED_KEY_CIPHER.setRoundKeys(new Key(fixedDesKey));
+  }
+
   @Override
   public RoundKey[] generateRoundKeys(Key key) {
 
@@ -37,12 +47,10 @@ public class DealKeyExpansion implements KeyExpansion {
 
     byte[] previousBlock = fixedInitializationVector;
     byte[][] keyParts = splitKeyIntoBlocks(key.getData(), 8);
-    DesCipher desCipher = new DesCipher();
-    desCipher.setRoundKeys(new Key(fixedDesKey));
 
     for (int i = 0; i < s; i++) {
       byte[] xoredBlock = BitUtils.xor(previousBlock, keyParts[i]);
-      Block encryptedBlock = desCipher.encryptBlock(new Block(xoredBlock));
+      Block encryptedBlock = FIXED_KEY_CIPHER.encryptBlock(new Block(xoredBlock));
       roundKeys[i] = new RoundKey(encryptedBlock.getData());
     }
 
@@ -52,7 +60,7 @@ public class DealKeyExpansion implements KeyExpansion {
       constant = BitUtils.rotateLeft(constant, -(constantShift - 1), 0, 32);
       byte[] xoredBlock = BitUtils.xor(constant, keyParts[i % s]);
       xoredBlock = BitUtils.xor(xoredBlock, previousBlock);
-      Block encryptedBlock = desCipher.encryptBlock(new Block(xoredBlock));
+      Block encryptedBlock = FIXED_KEY_CIPHER.encryptBlock(new Block(xoredBlock));
       roundKeys[i] = new RoundKey(encryptedBlock.getData());
       previousBlock = encryptedBlock.getData();
       constantShift <<= 1;
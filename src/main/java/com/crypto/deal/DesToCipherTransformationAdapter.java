@@ -6,6 +6,13 @@ import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
 import com.crypto.util.datatypes.RoundKey;
 
+/**
+ * Generic {@link CipherTransformation} view of DES keyed with the round key.
+ *
+ * @deprecated re-expands the DES key schedule on every call; {@link DealCipher} keeps the
+ * expanded schedules of all its rounds instead.
+ */
+@Deprecated
 public class DesToCipherTransformationAdapter implements CipherTransformation {
 
   private final DesCipher desCipher = new DesCipher();
@@ -1,11 +1,10 @@
 package com.crypto.des;
 
 import com.crypto.cipher.FeistelNetwork;
-import com.crypto.util.BitPermutor;
 import com.crypto.util.datatypes.Block;
 
-import static com.crypto.des.config.DesConfiguration.FP;
-import static com.crypto.des.config.DesConfiguration.IP;
+import static com.crypto.des.config.DesConfiguration.COMPILED_FP;
+import static com.crypto.des.config.DesConfiguration.COMPILED_IP;
 
 public class DesCipher extends FeistelNetwork {
 
@@ -25,23 +24,13 @@ public class DesCipher extends FeistelNetwork {
       throw new IllegalArgumentException("Block data length must be 8 bytes");
     }
 
-    byte[] permutedData = BitPermutor.permuteBits(
-            blockData,
-            IP,
-            BitPermutor.BitOrder.MostSignificantToLeastSignificant,
-            BitPermutor.StartingBitIndex.ONE
-    );
+    byte[] permutedData = COMPILED_IP.permute(blockData);
 
     block = super.encryptBlock(new Block(permutedData));
 
     blockData = block.getData();
 
-    permutedData = BitPermutor.permuteBits(
-            blockData,
-            FP,
-            BitPermutor.BitOrder.MostSignificantToLeastSignificant,
-            BitPermutor.StartingBitIndex.ONE
-    );
+    permutedData = COMPILED_FP.permute(blockData);
 
     return new Block(permutedData);
   }
@@ -53,23 +42,13 @@ public class DesCipher extends FeistelNetwork {
       throw new IllegalArgumentException("Block data length must be 8");
     }
 
-    byte[] permutedData = BitPermutor.permuteBits(
-            blockData,
-            IP,
-            BitPermutor.BitOrder.MostSignificantToLeastSignificant,
-            BitPermutor.StartingBitIndex.ONE
-    );
+    byte[] permutedData = COMPILED_IP.permute(blockData);
 
     block = super.decryptBlock(new Block(permutedData));
 
     blockData = block.getData();
 
-    permutedData = BitPermutor.permuteBits(
-            blockData,
-            FP,
-            BitPermutor.BitOrder.MostSignificantToLeastSignificant,
-            BitPermutor.StartingBitIndex.ONE
-    );
+    permutedData = COMPILED_FP.permute(blockData);
 
     return new Block(permutedData);
   }
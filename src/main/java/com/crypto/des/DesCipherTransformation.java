@@ -1,7 +1,6 @@
 package com.crypto.des;
 
 import com.crypto.cipher.transformation.CipherTransformation;
-import com.crypto.util.BitPermutor;
 import com.crypto.util.BitUtils;
 import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.RoundKey;
@@ -18,12 +17,7 @@ public class DesCipherTransformation implements CipherTransformation {
       throw new IllegalArgumentException("Invalid data or key length in Feistel F function");
     }
 
-    blockData = BitPermutor.permuteBits(
-            blockData,
-            E,
-            BitPermutor.BitOrder.MostSignificantToLeastSignificant,
-            BitPermutor.StartingBitIndex.ONE
-    );
+    blockData = COMPILED_E.permute(blockData);
 
     blockData = BitUtils.xor(blockData, roundKeyData);
 
@@ -39,12 +33,7 @@ public class DesCipherTransformation implements CipherTransformation {
       substituteFourBits(substitutedData, sBoxValue, i * 4);
     }
 
-    byte[] permutedData = BitPermutor.permuteBits(
-            substitutedData,
-            P,
-            BitPermutor.BitOrder.MostSignificantToLeastSignificant,
-            BitPermutor.StartingBitIndex.ONE
-    );
+    byte[] permutedData = COMPILED_P.permute(substitutedData);
 
     return new Block(permutedData);
   }
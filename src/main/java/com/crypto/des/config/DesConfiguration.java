@@ -1,5 +1,7 @@
 package com.crypto.des.config;
 
+import com.crypto.util.CompiledPermutation;
+
 public class DesConfiguration {
 
   //DES initial and final permutation blocks
@@ -98,6 +100,14 @@ public class DesConfiguration {
           2, 1, 14, 7, 4, 10, 8, 13, 15, 12, 9, 0, 3, 5, 6, 11
   }};
 
+  /**
+   * Combined S-box + P-box tables. {@code SP[i][x]} is the output of S-box {@code i} for the 6-bit
+   * input {@code x} (bit 1 of the chunk in the most significant position), already placed into its
+   * nibble of the 32-bit word and passed through {@link #P}. The Feistel function then becomes an OR
+   * of eight lookups.
+   */
+  public static final int[][] SP = buildSpTables();
+
 
   //key expansion blocks
 
@@ -127,4 +137,32 @@ public class DesConfiguration {
           46, 42, 50, 36, 29, 32
   };
 
+
+  //permutation tables compiled at class initialization
+
+  public static final CompiledPermutation COMPILED_IP = new CompiledPermutation(IP, 64);
+  public static final CompiledPermutation COMPILED_FP = new CompiledPermutation(FP, 64);
+  public static final CompiledPermutation COMPILED_E = new CompiledPermutation(E, 32);
+  public static final CompiledPermutation COMPILED_P = new CompiledPermutation(P, 32);
+  public static final CompiledPermutation COMPILED_PC1 = new CompiledPermutation(PC1, 64);
+  public static final CompiledPermutation COMPILED_PC2 = new CompiledPermutation(PC2, 56);
+
+  private static int[][] buildSpTables() {
+    int[][] sp = new int[8][64];
+    for (int box = 0; box < 8; box++) {
+      for (int x = 0; x < 64; x++) {
+        int row = ((x >>> 4) & 0x2) | (x & 0x1);
+        int col = (x >>> 1) & 0xF;
+        int substituted = S[box][row * 16 + col] << (28 - 4 * box);
+
+        int permuted = 0;
+        for (int i = 0; i < 32; i++) {
+          permuted |= ((substituted >>> (32 - P[i])) & 1) << (31 - i);
+        }
+        sp[box][x] = permuted;
+      }
+    }
+    return sp;
+  }
+
 }
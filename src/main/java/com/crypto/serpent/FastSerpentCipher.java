@@ -0,0 +1,614 @@
+package com.crypto.serpent;
+
+import com.crypto.cipher.SymmetricCipher;
+import com.crypto.util.BitUtils;
+import com.crypto.util.datatypes.Block;
+import com.crypto.util.datatypes.Key;
+
+/**
+ * Serpent that keeps the 128-bit state in four local ints for all 32 rounds. S-boxes are the
+ * bitsliced formulas of {@link com.crypto.serpent.config.SerpentConfig} inlined into the round
+ * loop, the linear transformation uses {@link Integer#rotateLeft}, and round keys are held as a
+ * flat array of 132 words. Nothing is allocated per block besides the result.
+ * Byte-compatible with {@link SerpentCipher}.
+ */
+public class FastSerpentCipher implements SymmetricCipher {
+
+  private final SerpentKeyExpansion keyExpansion = new SerpentKeyExpansion();
+  private int[] roundKeys;
+
+  @Override
+  public Block encryptBlock(Block block) {
+    byte[] blockData = block.getData();
+    if (blockData.length != 16) {
+      throw new IllegalArgumentException("Block data length must be 16 bytes");
+    }
+    byte[] result = new byte[16];
+    encryptBlock(blockData, 0, result, 0);
+    return new Block(result);
+  }
+
+  @Override
+  public Block decryptBlock(Block block) {
+    byte[] blockData = block.getData();
+    if (blockData.length != 16) {
+      throw new IllegalArgumentException("Block data length must be 16 bytes");
+    }
+    byte[] result = new byte[16];
+    decryptBlock(blockData, 0, result, 0);
+    return new Block(result);
+  }
+
+  @Override
+  public void setRoundKeys(Key key) {
+    this.roundKeys = keyExpansion.generateRoundKeyWords(key);
+  }
+
+  @Override
+  public int getBlockSize() {
+    return 16;
+  }
+
+  private int[] requireRoundKeys() {
+    int[] k = roundKeys;
+    if (k == null) {
+      throw new IllegalStateException("Round keys not set");
+    }
+    return k;
+  }
+
+  @Override
+  public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    encrypt(requireRoundKeys(), in, inOff, out, outOff);
+  }
+
+  @Override
+  public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    int[] k = requireRoundKeys();
+    for (int i = 0; i < count; i++, inOff += 16, outOff += 16) {
+      encrypt(k, in, inOff, out, outOff);
+    }
+  }
+
+  /**
+   * Rounds are processed eight at a time so that round {@code i / 4 + s} always uses S-box
+   * {@code s}. The last round replaces the linear transformation with the final key.
+   */
+  private static void encrypt(int[] k, byte[] in, int inOff, byte[] out, int outOff) {
+    int x0 = BitUtils.littleEndianToInt(in, inOff);
+    int x1 = BitUtils.littleEndianToInt(in, inOff + 4);
+    int x2 = BitUtils.littleEndianToInt(in, inOff + 8);
+    int x3 = BitUtils.littleEndianToInt(in, inOff + 12);
+    int y0, y1, y2, y3;
+
+    for (int i = 0; ; i += 32) {
+      x0 ^= k[i];
+      x1 ^= k[i + 1];
+      x2 ^= k[i + 2];
+      x3 ^= k[i + 3];
+      // S0
+      {
+        int t1 = x0 ^ x3;
+        int t3 = x2 ^ t1;
+        int t4 = x1 ^ t3;
+        y3 = (x0 & x3) ^ t4;
+        int t7 = x0 ^ (x1 & t1);
+        y2 = t4 ^ (x2 | t7);
+        int t12 = y3 & (t3 ^ t7);
+        y1 = (~t3) ^ t12;
+        y0 = t12 ^ (~t7);
+      }
+      x0 = Integer.rotateLeft(y0, 13);
+      x2 = Integer.rotateLeft(y2, 3);
+      x1 = y1 ^ x0 ^ x2;
+      x3 = y3 ^ x2 ^ (x0 << 3);
+      x1 = Integer.rotateLeft(x1, 1);
+      x3 = Integer.rotateLeft(x3, 7);
+      x0 ^= x1 ^ x3;
+      x2 ^= x3 ^ (x1 << 7);
+      x0 = Integer.rotateLeft(x0, 5);
+      x2 = Integer.rotateLeft(x2, 22);
+
+      x0 ^= k[i + 4];
+      x1 ^= k[i + 5];
+      x2 ^= k[i + 6];
+      x3 ^= k[i + 7];
+      // S1
+      {
+        int t2 = x1 ^ (~x0);
+        int t5 = x2 ^ (x0 | t2);
+        y2 = x3 ^ t5;
+        int t7 = x1 ^ (x3 | t2);
+        int t8 = t2 ^ y2;
+        y3 = t8 ^ (t5 & t7);
+        int t11 = t5 ^ t7;
+        y1 = y3 ^ t11;
+        y0 = t5 ^ (t8 & t11);
+      }
+      x0 = Integer.rotateLeft(y0, 13);
+      x2 = Integer.rotateLeft(y2, 3);
+      x1 = y1 ^ x0 ^ x2;
+      x3 = y3 ^ x2 ^ (x0 << 3);
+      x1 = Integer.rotateLeft(x1, 1);
+      x3 = Integer.rotateLeft(x3, 7);
+      x0 ^= x1 ^ x3;
+      x2 ^= x3 ^ (x1 << 7);
+      x0 = Integer.rotateLeft(x0, 5);
+      x2 = Integer.rotateLeft(x2, 22);
+
+      x0 ^= k[i + 8];
+      x1 ^= k[i + 9];
+      x2 ^= k[i + 10];
+      x3 ^= k[i + 11];
+      // S2
+      {
+        int t1 = ~x0;
+        int t2 = x1 ^ x3;
+        int t3 = x2 & t1;
+        y0 = t2 ^ t3;
+        int t5 = x2 ^ t1;
+        int t6 = x2 ^ y0;
+        int t7 = x1 & t6;
+        y3 = t5 ^ t7;
+        y2 = x0 ^ ((x3 | t7) & (y0 | t5));
+        y1 = (t2 ^ y3) ^ (y2 ^ (x3 | t1));
+      }
+      x0 = Integer.rotateLeft(y0, 13);
+      x2 = Integer.rotateLeft(y2, 3);
+      x1 = y1 ^ x0 ^ x2;
+      x3 = y3 ^ x2 ^ (x0 << 3);
+      x1 = Integer.rotateLeft(x1, 1);
+      x3 = Integer.rotateLeft(x3, 7);
+      x0 ^= x1 ^ x3;
+      x2 ^= x3 ^ (x1 << 7);
+      x0 = Integer.rotateLeft(x0, 5);
+      x2 = Integer.rotateLeft(x2, 22);
+
+      x0 ^= k[i + 12];
+      x1 ^= k[i + 13];
+      x2 ^= k[i + 14];
+      x3 ^= k[i + 15];
+      // S3
+      {
+        int t1 = x0 ^ x1;
+        int t2 = x0 & x2;
+        int t3 = x0 | x3;
+        int t4 = x2 ^ x3;
+        int t5 = t1 & t3;
+        int t6 = t2 | t5;
+        y2 = t4 ^ t6;
+        int t8 = x1 ^ t3;
+        int t9 = t6 ^ t8;
+        int t10 = t4 & t9;
+        y0 = t1 ^ t10;
+        int t12 = y2 & y0;
+        y1 = t9 ^ t12;
+        y3 = (x1 | x3) ^ (t4 ^ t12);
+      }
+      x0 = Integer.rotateLeft(y0, 13);
+      x2 = Integer.rotateLeft(y2, 3);
+      x1 = y1 ^ x0 ^ x2;
+      x3 = y3 ^ x2 ^ (x0 << 3);
+      x1 = Integer.rotateLeft(x1, 1);
+      x3 = Integer.rotateLeft(x3, 7);
+      x0 ^= x1 ^ x3;
+      x2 ^= x3 ^ (x1 << 7);
+      x0 = Integer.rotateLeft(x0, 5);
+      x2 = Integer.rotateLeft(x2, 22);
+
+      x0 ^= k[i + 16];
+      x1 ^= k[i + 17];
+      x2 ^= k[i + 18];
+      x3 ^= k[i + 19];
+      // S4
+      {
+        int t1 = x0 ^ x3;
+        int t2 = x3 & t1;
+        int t3 = x2 ^ t2;
+        int t4 = x1 | t3;
+        y3 = t1 ^ t4;
+        int t6 = ~x1;
+        int t7 = t1 | t6;
+        y0 = t3 ^ t7;
+        int t9 = x0 & y0;
+        int t10 = t1 ^ t6;
+        int t11 = t4 & t10;
+        y2 = t9 ^ t11;
+        y1 = (x0 ^ t3) ^ (t10 & y2);
+      }
+      x0 = Integer.rotateLeft(y0, 13);
+      x2 = Integer.rotateLeft(y2, 3);
+      x1 = y1 ^ x0 ^ x2;
+      x3 = y3 ^ x2 ^ (x0 << 3);
+      x1 = Integer.rotateLeft(x1, 1);
+      x3 = Integer.rotateLeft(x3, 7);
+      x0 ^= x1 ^ x3;
+      x2 ^= x3 ^ (x1 << 7);
+      x0 = Integer.rotateLeft(x0, 5);
+      x2 = Integer.rotateLeft(x2, 22);
+
+      x0 ^= k[i + 20];
+      x1 ^= k[i + 21];
+      x2 ^= k[i + 22];
+      x3 ^= k[i + 23];
+      // S5
+      {
+        int t1 = ~x0;
+        int t2 = x0 ^ x1;
+        int t3 = x0 ^ x3;
+        int t4 = x2 ^ t1;
+        int t5 = t2 | t3;
+        y0 = t4 ^ t5;
+        int t7 = x3 & y0;
+        int t8 = t2 ^ y0;
+        y1 = t7 ^ t8;
+        int t10 = t1 | y0;
+        int t11 = t2 | t7;
+        int t12 = t3 ^ t10;
+        y2 = t11 ^ t12;
+        y3 = (x1 ^ t7) ^ (y1 & t12);
+      }
+      x0 = Integer.rotateLeft(y0, 13);
+      x2 = Integer.rotateLeft(y2, 3);
+      x1 = y1 ^ x0 ^ x2;
+      x3 = y3 ^ x2 ^ (x0 << 3);
+      x1 = Integer.rotateLeft(x1, 1);
+      x3 = Integer.rotateLeft(x3, 7);
+      x0 ^= x1 ^ x3;
+      x2 ^= x3 ^ (x1 << 7);
+      x0 = Integer.rotateLeft(x0, 5);
+      x2 = Integer.rotateLeft(x2, 22);
+
+      x0 ^= k[i + 24];
+      x1 ^= k[i + 25];
+      x2 ^= k[i + 26];
+      x3 ^= k[i + 27];
+      // S6
+      {
+        int t1 = ~x0;
+        int t2 = x0 ^ x3;
+        int t3 = x1 ^ t2;
+        int t4 = t1 | t2;
+        int t5 = x2 ^ t4;
+        y1 = x1 ^ t5;
+        int t7 = t2 | y1;
+        int t8 = x3 ^ t7;
+        int t9 = t5 & t8;
+        y2 = t3 ^ t9;
+        int t11 = t5 ^ t8;
+        y0 = y2 ^ t11;
+        y3 = (~t5) ^ (t3 & t11);
+      }
+      x0 = Integer.rotateLeft(y0, 13);
+      x2 = Integer.rotateLeft(y2, 3);
+      x1 = y1 ^ x0 ^ x2;
+      x3 = y3 ^ x2 ^ (x0 << 3);
+      x1 = Integer.rotateLeft(x1, 1);
+      x3 = Integer.rotateLeft(x3, 7);
+      x0 ^= x1 ^ x3;
+      x2 ^= x3 ^ (x1 << 7);
+      x0 = Integer.rotateLeft(x0, 5);
+      x2 = Integer.rotateLeft(x2, 22);
+
+      x0 ^= k[i + 28];
+      x1 ^= k[i + 29];
+      x2 ^= k[i + 30];
+      x3 ^= k[i + 31];
+      // S7
+      {
+        int t1 = x1 ^ x2;
+        int t2 = x2 & t1;
+        int t3 = x3 ^ t2;
+        int t4 = x0 ^ t3;
+        int t5 = x3 | t1;
+        int t6 = t4 & t5;
+        y1 = x1 ^ t6;
+        int t8 = t3 | y1;
+        int t9 = x0 & t4;
+        y3 = t1 ^ t9;
+        int t11 = t4 ^ t8;
+        int t12 = y3 & t11;
+        y2 = t3 ^ t12;
+        y0 = (~t11) ^ (y3 & y2);
+      }
+      if (i == 96) {
+        x0 = y0 ^ k[128];
+        x1 = y1 ^ k[129];
+        x2 = y2 ^ k[130];
+        x3 = y3 ^ k[131];
+        break;
+      }
+      x0 = Integer.rotateLeft(y0, 13);
+      x2 = Integer.rotateLeft(y2, 3);
+      x1 = y1 ^ x0 ^ x2;
+      x3 = y3 ^ x2 ^ (x0 << 3);
+      x1 = Integer.rotateLeft(x1, 1);
+      x3 = Integer.rotateLeft(x3, 7);
+      x0 ^= x1 ^ x3;
+      x2 ^= x3 ^ (x1 << 7);
+      x0 = Integer.rotateLeft(x0, 5);
+      x2 = Integer.rotateLeft(x2, 22);
+    }
+
+    BitUtils.intToLittleEndian(x0, out, outOff);
+    BitUtils.intToLittleEndian(x1, out, outOff + 4);
+    BitUtils.intToLittleEndian(x2, out, outOff + 8);
+    BitUtils.intToLittleEndian(x3, out, outOff + 12);
+  }
+
+  @Override
+  public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    decrypt(requireRoundKeys(), in, inOff, out, outOff);
+  }
+
+  @Override
+  public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    int[] k = requireRoundKeys();
+    for (int i = 0; i < count; i++, inOff += 16, outOff += 16) {
+      decrypt(k, in, inOff, out, outOff);
+    }
+  }
+
+  private static void decrypt(int[] k, byte[] in, int inOff, byte[] out, int outOff) {
+    int x0 = BitUtils.littleEndianToInt(in, inOff);
+    int x1 = BitUtils.littleEndianToInt(in, inOff + 4);
+    int x2 = BitUtils.littleEndianToInt(in, inOff + 8);
+    int x3 = BitUtils.littleEndianToInt(in, inOff + 12);
+    int y0, y1, y2, y3;
+
+    for (int i = 96; i >= 0; i -= 32) {
+      if (i == 96) {
+        x0 ^= k[128];
+        x1 ^= k[129];
+        x2 ^= k[130];
+        x3 ^= k[131];
+      } else {
+        x2 = Integer.rotateRight(x2, 22);
+        x0 = Integer.rotateRight(x0, 5);
+        x2 ^= x3 ^ (x1 << 7);
+        x0 ^= x1 ^ x3;
+        x3 = Integer.rotateRight(x3, 7);
+        x1 = Integer.rotateRight(x1, 1);
+        x3 ^= x2 ^ (x0 << 3);
+        x1 ^= x0 ^ x2;
+        x2 = Integer.rotateRight(x2, 3);
+        x0 = Integer.rotateRight(x0, 13);
+      }
+      // inverse S7
+      {
+        int t3 = x2 | (x0 & x1);
+        int t4 = x3 & (x0 | x1);
+        y3 = t3 ^ t4;
+        int t6 = ~x3;
+        int t7 = x1 ^ t4;
+        int t9 = t7 | (y3 ^ t6);
+        y1 = x0 ^ t9;
+        y0 = (x2 ^ t7) ^ (x3 | y1);
+        y2 = (t3 ^ y1) ^ (y0 ^ (x0 & y3));
+      }
+      x0 = y0 ^ k[i + 28];
+      x1 = y1 ^ k[i + 29];
+      x2 = y2 ^ k[i + 30];
+      x3 = y3 ^ k[i + 31];
+
+      x2 = Integer.rotateRight(x2, 22);
+      x0 = Integer.rotateRight(x0, 5);
+      x2 ^= x3 ^ (x1 << 7);
+      x0 ^= x1 ^ x3;
+      x3 = Integer.rotateRight(x3, 7);
+      x1 = Integer.rotateRight(x1, 1);
+      x3 ^= x2 ^ (x0 << 3);
+      x1 ^= x0 ^ x2;
+      x2 = Integer.rotateRight(x2, 3);
+      x0 = Integer.rotateRight(x0, 13);
+      // inverse S6
+      {
+        int t1 = ~x0;
+        int t2 = x0 ^ x1;
+        int t3 = x2 ^ t2;
+        int t4 = x2 | t1;
+        int t5 = x3 ^ t4;
+        y1 = t3 ^ t5;
+        int t7 = t3 & t5;
+        int t8 = t2 ^ t7;
+        int t9 = x1 | t8;
+        y3 = t5 ^ t9;
+        int t11 = x1 | y3;
+        y0 = t8 ^ t11;
+        y2 = (x3 & t1) ^ (t3 ^ t11);
+      }
+      x0 = y0 ^ k[i + 24];
+      x1 = y1 ^ k[i + 25];
+      x2 = y2 ^ k[i + 26];
+      x3 = y3 ^ k[i + 27];
+
+      x2 = Integer.rotateRight(x2, 22);
+      x0 = Integer.rotateRight(x0, 5);
+      x2 ^= x3 ^ (x1 << 7);
+      x0 ^= x1 ^ x3;
+      x3 = Integer.rotateRight(x3, 7);
+      x1 = Integer.rotateRight(x1, 1);
+      x3 ^= x2 ^ (x0 << 3);
+      x1 ^= x0 ^ x2;
+      x2 = Integer.rotateRight(x2, 3);
+      x0 = Integer.rotateRight(x0, 13);
+      // inverse S5
+      {
+        int t1 = ~x2;
+        int t2 = x1 & t1;
+        int t3 = x3 ^ t2;
+        int t4 = x0 & t3;
+        int t5 = x1 ^ t1;
+        y3 = t4 ^ t5;
+        int t7 = x1 | y3;
+        int t8 = x0 & t7;
+        y1 = t3 ^ t8;
+        int t10 = x0 | x3;
+        int t11 = t1 ^ t7;
+        y0 = t10 ^ t11;
+        y2 = (x1 & t10) ^ (t4 | (x0 ^ x2));
+      }
+      x0 = y0 ^ k[i + 20];
+      x1 = y1 ^ k[i + 21];
+      x2 = y2 ^ k[i + 22];
+      x3 = y3 ^ k[i + 23];
+
+      x2 = Integer.rotateRight(x2, 22);
+      x0 = Integer.rotateRight(x0, 5);
+      x2 ^= x3 ^ (x1 << 7);
+      x0 ^= x1 ^ x3;
+      x3 = Integer.rotateRight(x3, 7);
+      x1 = Integer.rotateRight(x1, 1);
+      x3 ^= x2 ^ (x0 << 3);
+      x1 ^= x0 ^ x2;
+      x2 = Integer.rotateRight(x2, 3);
+      x0 = Integer.rotateRight(x0, 13);
+      // inverse S4
+      {
+        int t1 = x2 | x3;
+        int t2 = x0 & t1;
+        int t3 = x1 ^ t2;
+        int t4 = x0 & t3;
+        int t5 = x2 ^ t4;
+        y1 = x3 ^ t5;
+        int t7 = ~x0;
+        int t8 = t5 & y1;
+        y3 = t3 ^ t8;
+        int t10 = y1 | t7;
+        int t11 = x3 ^ t10;
+        y0 = y3 ^ t11;
+        y2 = (t3 & t11) ^ (y1 ^ t7);
+      }
+      x0 = y0 ^ k[i + 16];
+      x1 = y1 ^ k[i + 17];
+      x2 = y2 ^ k[i + 18];
+      x3 = y3 ^ k[i + 19];
+
+      x2 = Integer.rotateRight(x2, 22);
+      x0 = Integer.rotateRight(x0, 5);
+      x2 ^= x3 ^ (x1 << 7);
+      x0 ^= x1 ^ x3;
+      x3 = Integer.rotateRight(x3, 7);
+      x1 = Integer.rotateRight(x1, 1);
+      x3 ^= x2 ^ (x0 << 3);
+      x1 ^= x0 ^ x2;
+      x2 = Integer.rotateRight(x2, 3);
+      x0 = Integer.rotateRight(x0, 13);
+      // inverse S3
+      {
+        int t1 = x0 | x1;
+        int t2 = x1 ^ x2;
+        int t3 = x1 & t2;
+        int t4 = x0 ^ t3;
+        int t5 = x2 ^ t4;
+        int t6 = x3 | t4;
+        y0 = t2 ^ t6;
+        int t8 = t2 | t6;
+        int t9 = x3 ^ t8;
+        y2 = t5 ^ t9;
+        int t11 = t1 ^ t9;
+        int t12 = y0 & t11;
+        y3 = t4 ^ t12;
+        y1 = y3 ^ (y0 ^ t11);
+      }
+      x0 = y0 ^ k[i + 12];
+      x1 = y1 ^ k[i + 13];
+      x2 = y2 ^ k[i + 14];
+      x3 = y3 ^ k[i + 15];
+
+      x2 = Integer.rotateRight(x2, 22);
+      x0 = Integer.rotateRight(x0, 5);
+      x2 ^= x3 ^ (x1 << 7);
+      x0 ^= x1 ^ x3;
+      x3 = Integer.rotateRight(x3, 7);
+      x1 = Integer.rotateRight(x1, 1);
+      x3 ^= x2 ^ (x0 << 3);
+      x1 ^= x0 ^ x2;
+      x2 = Integer.rotateRight(x2, 3);
+      x0 = Integer.rotateRight(x0, 13);
+      // inverse S2
+      {
+        int t1 = x1 ^ x3;
+        int t2 = ~t1;
+        int t3 = x0 ^ x2;
+        int t4 = x2 ^ t1;
+        int t5 = x1 & t4;
+        y0 = t3 ^ t5;
+        int t7 = x0 | t2;
+        int t8 = x3 ^ t7;
+        int t9 = t3 | t8;
+        y3 = t1 ^ t9;
+        int t11 = ~t4;
+        int t12 = y0 | y3;
+        y1 = t11 ^ t12;
+        y2 = (x3 & t11) ^ (t3 ^ t12);
+      }
+      x0 = y0 ^ k[i + 8];
+      x1 = y1 ^ k[i + 9];
+      x2 = y2 ^ k[i + 10];
+      x3 = y3 ^ k[i + 11];
+
+      x2 = Integer.rotateRight(x2, 22);
+      x0 = Integer.rotateRight(x0, 5);
+      x2 ^= x3 ^ (x1 << 7);
+      x0 ^= x1 ^ x3;
+      x3 = Integer.rotateRight(x3, 7);
+      x1 = Integer.rotateRight(x1, 1);
+      x3 ^= x2 ^ (x0 << 3);
+      x1 ^= x0 ^ x2;
+      x2 = Integer.rotateRight(x2, 3);
+      x0 = Integer.rotateRight(x0, 13);
+      // inverse S1
+      {
+        int t1 = x1 ^ x3;
+        int t3 = x0 ^ (x1 & t1);
+        int t4 = t1 ^ t3;
+        y3 = x2 ^ t4;
+        int t7 = x1 ^ (t1 & t3);
+        int t8 = y3 | t7;
+        y1 = t3 ^ t8;
+        int t10 = ~y1;
+        int t11 = y3 ^ t7;
+        y0 = t10 ^ t11;
+        y2 = t4 ^ (t10 | t11);
+      }
+      x0 = y0 ^ k[i + 4];
+      x1 = y1 ^ k[i + 5];
+      x2 = y2 ^ k[i + 6];
+      x3 = y3 ^ k[i + 7];
+
+      x2 = Integer.rotateRight(x2, 22);
+      x0 = Integer.rotateRight(x0, 5);
+      x2 ^= x3 ^ (x1 << 7);
+      x0 ^= x1 ^ x3;
+      x3 = Integer.rotateRight(x3, 7);
+      x1 = Integer.rotateRight(x1, 1);
+      x3 ^= x2 ^ (x0 << 3);
+      x1 ^= x0 ^ x2;
+      x2 = Integer.rotateRight(x2, 3);
+      x0 = Integer.rotateRight(x0, 13);
+      // inverse S0
+      {
+        int t1 = ~x0;
+        int t2 = x0 ^ x1;
+        int t4 = x3 ^ (t1 | t2);
+        int t5 = x2 ^ t4;
+        y2 = t2 ^ t5;
+        int t8 = t1 ^ (x3 & t2);
+        y1 = t4 ^ (y2 & t8);
+        y3 = (x0 & t4) ^ (t5 | y1);
+        y0 = y3 ^ (t5 ^ t8);
+      }
+      x0 = y0 ^ k[i];
+      x1 = y1 ^ k[i + 1];
+      x2 = y2 ^ k[i + 2];
+      x3 = y3 ^ k[i + 3];
+    }
+
+    BitUtils.intToLittleEndian(x0, out, outOff);
+    BitUtils.intToLittleEndian(x1, out, outOff + 4);
+    BitUtils.intToLittleEndian(x2, out, outOff + 8);
+    BitUtils.intToLittleEndian(x3, out, outOff + 12);
+  }
+
+}
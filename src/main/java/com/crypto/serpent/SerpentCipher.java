@@ -110,43 +110,52 @@ public class SerpentCipher extends SubstitutionPermutationNetwork {
   }
 
   private byte[] linearTransformation(byte[] data) {
-    byte[][] X = new byte[4][4];
-    for(int i = 0; i < 4; i++) {
-      System.arraycopy(data, i * 4, X[i], 0, 4);
-    }
-
-    X[0] = BitUtils.rotateLeft(X[0], 13, 0, 32);
-    X[2] = BitUtils.rotateLeft(X[2], 3, 0, 32);
-    X[1] = BitUtils.xor(X[1], BitUtils.xor(X[0], X[2]));
-    X[3] = BitUtils.xor(X[3], BitUtils.xor(X[2], BitUtils.shiftLeft(X[0], 3, 0, 32)));
-    X[1] = BitUtils.rotateLeft(X[1], 1, 0, 32);
-    X[3] = BitUtils.rotateLeft(X[3], 7, 0, 32);
-    X[0] = BitUtils.xor(X[0], BitUtils.xor(X[1], X[3]));
-    X[2] = BitUtils.xor(X[2], BitUtils.xor(X[3], BitUtils.shiftLeft(X[1], 7, 0, 32)));
-    X[0] = BitUtils.rotateLeft(X[0], 5, 0, 32);
-    X[2] = BitUtils.rotateLeft(X[2], 22, 0, 32);
-
-    return BitUtils.concatenate(X);
+    int x0 = BitUtils.bigEndianToInt(data, 0);
+    int x1 = BitUtils.bigEndianToInt(data, 4);
+    int x2 = BitUtils.bigEndianToInt(data, 8);
+    int x3 = BitUtils.bigEndianToInt(data, 12);
+
+    x0 = Integer.rotateLeft(x0, 13);
+    x2 = Integer.rotateLeft(x2, 3);
+    x1 ^= x0 ^ x2;
+    x3 ^= x2 ^ (x0 << 3);
+    x1 = Integer.rotateLeft(x1, 1);
+    x3 = Integer.rotateLeft(x3, 7);
+    x0 ^= x1 ^ x3;
+    x2 ^= x3 ^ (x1 << 7);
+    x0 = Integer.rotateLeft(x0, 5);
+    x2 = Integer.rotateLeft(x2, 22);
+
+    return toBytes(x0, x1, x2, x3);
   }
 
   private byte[] inverseLinearTransformation(byte[] data) {
-    byte[][] X = new byte[4][4];
-    for(int i = 0; i < 4; i++) {
-      System.arraycopy(data, i * 4, X[i], 0, 4);
-    }
+    int x0 = BitUtils.bigEndianToInt(data, 0);
+    int x1 = BitUtils.bigEndianToInt(data, 4);
+    int x2 = BitUtils.bigEndianToInt(data, 8);
+    int x3 = BitUtils.bigEndianToInt(data, 12);
+
+    x2 = Integer.rotateRight(x2, 22);
+    x0 = Integer.rotateRight(x0, 5);
+    x2 ^= x3 ^ (x1 << 7);
+    x0 ^= x1 ^ x3;
+    x3 = Integer.rotateRight(x3, 7);
+    x1 = Integer.rotateRight(x1, 1);
+    x3 ^= x2 ^ (x0 << 3);
+    x1 ^= x0 ^ x2;
+    x2 = Integer.rotateRight(x2, 3);
+    x0 = Integer.rotateRight(x0, 13);
+
+    return toBytes(x0, x1, x2, x3);
+  }
 
-    X[2] = BitUtils.rotateLeft(X[2], -22, 0, 32);
-    X[0] = BitUtils.rotateLeft(X[0], -5, 0, 32);
-    X[2] = BitUtils.xor(X[2], BitUtils.xor(X[3], BitUtils.shiftLeft(X[1], 7, 0, 32)));
-    X[0] = BitUtils.xor(X[0], BitUtils.xor(X[1], X[3]));
-    X[3] = BitUtils.rotateLeft(X[3], -7, 0, 32);
-    X[1] = BitUtils.rotateLeft(X[1], -1, 0, 32);
-    X[3] = BitUtils.xor(X[3], BitUtils.xor(X[2], BitUtils.shiftLeft(X[0], 3, 0, 32)));
-    X[1] = BitUtils.xor(X[1], BitUtils.xor(X[0], X[2]));
-    X[2] = BitUtils.rotateLeft(X[2], -3, 0, 32);
-    X[0] = BitUtils.rotateLeft(X[0], -13, 0, 32);
-
-    return BitUtils.concatenate(X);
+  private static byte[] toBytes(int x0, int x1, int x2, int x3) {
+    byte[] result = new byte[16];
+    BitUtils.intToBigEndian(x0, result, 0);
+    BitUtils.intToBigEndian(x1, result, 4);
+    BitUtils.intToBigEndian(x2, result, 8);
+    BitUtils.intToBigEndian(x3, result, 12);
+    return result;
   }
 
   @Override
@@ -14,6 +14,22 @@ public class SerpentKeyExpansion implements KeyExpansion {
    */
   @Override
   public RoundKey[] generateRoundKeys(Key key) {
+    int[] words = generateRoundKeyWords(key);
+
+    RoundKey[] roundKeys = new RoundKey[33];
+    for(int roundKeyIndex = 0; roundKeyIndex < 33; roundKeyIndex++) {
+      byte[] roundKey = new byte[16];
+      BitUtils.intArrayToByteArray(words, roundKeyIndex * 4, roundKey, 0, 4);
+      roundKeys[roundKeyIndex] = new RoundKey(roundKey);
+    }
+    return roundKeys;
+  }
+
+  /**
+   * generates the same 33 round keys as one flat array of 132 words,
+   * round key {@code i} being words {@code 4i..4i+3}.
+   */
+  public int[] generateRoundKeyWords(Key key) {
 
     byte[] keyData = key.getData();
     int[] paddedKey = new int[16];
@@ -39,8 +55,6 @@ public class SerpentKeyExpansion implements KeyExpansion {
       paddedKey[i] = BitUtils.rotateLeft(paddedKey[i-8] ^ paddedKey[i-5] ^ paddedKey[i-3] ^ paddedKey[i-1] ^ goldenRatio ^ (i - 8), 11);
     }
 
-    RoundKey[] roundKeys = new RoundKey[33];
-
     System.arraycopy(paddedKey, 8, w, 0, 8);
 
     for(int i = 8; i < 132; i++) {
@@ -53,9 +67,9 @@ public class SerpentKeyExpansion implements KeyExpansion {
       int wordSequence = roundKeyIndex * 4;
 
       X = applySBox(sBlockIndex, w[wordSequence], w[wordSequence + 1], w[wordSequence + 2], w[wordSequence + 3]);
-      roundKeys[roundKeyIndex] = new RoundKey(BitUtils.intArrayToByteArray(X));
+      System.arraycopy(X, 0, w, wordSequence, 4);
     }
-    return roundKeys;
+    return w;
   }
 
 }
@@ -6,81 +6,92 @@ import com.crypto.util.BitUtils;
 import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
 import com.crypto.util.datatypes.RoundKey;
+import lombok.Getter;
 
 import java.util.Arrays;
 
 public class TwoFishCipher extends FeistelNetwork {
 
-  public static int[] S;
+  /**
+   * How the key-dependent S-boxes are prepared in {@link #setRoundKeys(Key)}.
+   */
+  public enum KeyingMode {
+    /**
+     * Four 256-entry S-box+MDS tables per key: more work at key setup, fastest per block.
+     */
+    FULL,
+    /**
+     * Only the S words are kept and h() is evaluated per call: cheapest key setup.
+     */
+    COMPACT
+  }
+
+  private final TwoFishCipherTransformation transformation;
+  private final TwoFishKeyExpansion twoFishKeyExpansion;
+  @Getter
+  private final KeyingMode keyingMode;
+
+  private int[] subKeys;
+  private TwoFishSBoxes sBoxes;
 
   public TwoFishCipher() {
-    super(new TwoFishCipherTransformation(), new TwoFishKeyExpansion());
+    this(KeyingMode.FULL);
+  }
+
+  public TwoFishCipher(KeyingMode keyingMode) {
+    this(new TwoFishCipherTransformation(), new TwoFishKeyExpansion(), keyingMode);
+  }
+
+  private TwoFishCipher(TwoFishCipherTransformation transformation, TwoFishKeyExpansion keyExpansion,
+                        KeyingMode keyingMode) {
+    super(transformation, keyExpansion);
+    if (keyingMode == null) {
+      throw new IllegalArgumentException("Keying mode must not be null");
+    }
+    this.transformation = transformation;
+    this.twoFishKeyExpansion = keyExpansion;
+    this.keyingMode = keyingMode;
   }
 
   @Override
   public Block encryptBlock(Block block) {
-    int[] data = BitUtils.byteArrayToLittleEndianArray(block.getData());
-
-    whitenData(data, 0);
-
-    for(int i = 0; i < 16; i++) {
-      int[] F = BitUtils.byteArrayToLittleEndianArray(
-              this.cipherTransformation.transform(
-              new Block(BitUtils.littleEndianArrayToByteArray(new int[]{data[0], data[1]})),
-              new RoundKey(BitUtils.concatenate(new byte[][]{this.roundKeys[2 * i + 8].getData(), this.roundKeys[2 * i + 8 + 1].getData()}))
-      ).getData());
-
-      data[2] = TwoFishUtils.ROR(data[2] ^ F[0], 1);
-      data[3] = TwoFishUtils.ROL(data[3], 1) ^ F[1];
-
-      if(i != 15) {
-        int tmp0 = data[0];
-        int tmp1 = data[1];
-        data[0] = data[2];
-        data[1] = data[3];
-        data[2] = tmp0;
-        data[3] = tmp1;
-      }
+    byte[] blockData = block.getData();
+    if (blockData.length != 16) {
+      throw new IllegalArgumentException("Block data length must be 16 bytes");
     }
-
-    whitenData(data, 4);
-    return new Block(BitUtils.littleEndianArrayToByteArray(data));
+    byte[] result = new byte[16];
+    encryptBlock(blockData, 0, result, 0);
+    return new Block(result);
   }
 
   @Override
   public Block decryptBlock(Block block) {
-    int[] data = BitUtils.byteArrayToLittleEndianArray(block.getData());
-
-    whitenData(data, 4);
-
-    for(int i = 15; i >= 0; i--) {
-      if(i != 15) {
-        int tmp0 = data[0];
-        int tmp1 = data[1];
-        data[0] = data[2];
-        data[1] = data[3];
-        data[2] = tmp0;
-        data[3] = tmp1;
-      }
-      int[] F = BitUtils.byteArrayToLittleEndianArray(
-              this.cipherTransformation.transform(
-                      new Block(BitUtils.littleEndianArrayToByteArray(new int[]{data[0], data[1]})),
-                      new RoundKey(BitUtils.concatenate(new byte[][]{this.roundKeys[2 * i + 8].getData(), this.roundKeys[2 * i + 8 + 1].getData()}))
-              ).getData());
-
-      data[2] = TwoFishUtils.ROL(data[2], 1) ^ F[0];
-      data[3] = TwoFishUtils.ROR(data[3] ^ F[1], 1);
-
+    byte[] blockData = block.getData();
+    if (blockData.length != 16) {
+      throw new IllegalArgumentException("Block data length must be 16 bytes");
     }
-
-    whitenData(data, 0);
-    return new Block(BitUtils.littleEndianArrayToByteArray(data));
+    byte[] result = new byte[16];
+    decryptBlock(blockData, 0, result, 0);
+    return new Block(result);
   }
 
   @Override
   public void setRoundKeys(Key key) {
-    super.setRoundKeys(key);
-    this.S = generateSBlocks(BitUtils.byteArrayToLittleEndianArray(key.getData()));
+    int[] keySubKeys = twoFishKeyExpansion.generateSubKeys(key);
+    int[] S = generateSBlocks(BitUtils.byteArrayToLittleEndianArray(key.getData()));
+    TwoFishSBoxes keySBoxes = keyingMode == KeyingMode.FULL
+            ? TwoFishSBoxes.fullKeying(S)
+            : TwoFishSBoxes.compactKeying(S);
+
+    RoundKey[] keyRoundKeys = new RoundKey[keySubKeys.length];
+    for (int i = 0; i < keySubKeys.length; i++) {
+      keyRoundKeys[i] = new RoundKey(BitUtils.intToByteArray(keySubKeys[i]));
+    }
+
+    this.roundKeys = keyRoundKeys;
+    this.subKeys = keySubKeys;
+    this.sBoxes = keySBoxes;
+    transformation.setSBoxes(keySBoxes);
   }
 
   public void whitenData(int[] data, int roundKeyIndexFirst) {
@@ -89,6 +100,95 @@ public class TwoFishCipher extends FeistelNetwork {
     }
   }
 
+  @Override
+  public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    encrypt(requireSubKeys(), sBoxes, in, inOff, out, outOff);
+  }
+
+  @Override
+  public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    int[] k = requireSubKeys();
+    TwoFishSBoxes s = sBoxes;
+    for (int i = 0; i < count; i++, inOff += 16, outOff += 16) {
+      encrypt(k, s, in, inOff, out, outOff);
+    }
+  }
+
+  /**
+   * Two rounds per iteration, so the halves never have to be swapped: the even round updates
+   * words 2 and 3 from words 0 and 1, the odd round the other way around. The 16 rounds end
+   * with the halves in swapped positions, which the output whitening accounts for.
+   */
+  private static void encrypt(int[] k, TwoFishSBoxes s, byte[] in, int inOff, byte[] out, int outOff) {
+    int x0 = BitUtils.littleEndianToInt(in, inOff) ^ k[0];
+    int x1 = BitUtils.littleEndianToInt(in, inOff + 4) ^ k[1];
+    int x2 = BitUtils.littleEndianToInt(in, inOff + 8) ^ k[2];
+    int x3 = BitUtils.littleEndianToInt(in, inOff + 12) ^ k[3];
+
+    for (int r = 8; r < 40; r += 4) {
+      int t0 = s.g(x0);
+      int t1 = s.g(Integer.rotateLeft(x1, 8));
+      x2 = Integer.rotateRight(x2 ^ (t0 + t1 + k[r]), 1);
+      x3 = Integer.rotateLeft(x3, 1) ^ (t0 + 2 * t1 + k[r + 1]);
+
+      t0 = s.g(x2);
+      t1 = s.g(Integer.rotateLeft(x3, 8));
+      x0 = Integer.rotateRight(x0 ^ (t0 + t1 + k[r + 2]), 1);
+      x1 = Integer.rotateLeft(x1, 1) ^ (t0 + 2 * t1 + k[r + 3]);
+    }
+
+    BitUtils.intToLittleEndian(x2 ^ k[4], out, outOff);
+    BitUtils.intToLittleEndian(x3 ^ k[5], out, outOff + 4);
+    BitUtils.intToLittleEndian(x0 ^ k[6], out, outOff + 8);
+    BitUtils.intToLittleEndian(x1 ^ k[7], out, outOff + 12);
+  }
+
+  @Override
+  public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+    decrypt(requireSubKeys(), sBoxes, in, inOff, out, outOff);
+  }
+
+  @Override
+  public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int count) {
+    int[] k = requireSubKeys();
+    TwoFishSBoxes s = sBoxes;
+    for (int i = 0; i < count; i++, inOff += 16, outOff += 16) {
+      decrypt(k, s, in, inOff, out, outOff);
+    }
+  }
+
+  private static void decrypt(int[] k, TwoFishSBoxes s, byte[] in, int inOff, byte[] out, int outOff) {
+    int x2 = BitUtils.littleEndianToInt(in, inOff) ^ k[4];
+    int x3 = BitUtils.littleEndianToInt(in, inOff + 4) ^ k[5];
+    int x0 = BitUtils.littleEndianToInt(in, inOff + 8) ^ k[6];
+    int x1 = BitUtils.littleEndianToInt(in, inOff + 12) ^ k[7];
+
+    for (int r = 36; r >= 8; r -= 4) {
+      int t0 = s.g(x2);
+      int t1 = s.g(Integer.rotateLeft(x3, 8));
+      x0 = Integer.rotateLeft(x0, 1) ^ (t0 + t1 + k[r + 2]);
+      x1 = Integer.rotateRight(x1 ^ (t0 + 2 * t1 + k[r + 3]), 1);
+
+      t0 = s.g(x0);
+      t1 = s.g(Integer.rotateLeft(x1, 8));
+      x2 = Integer.rotateLeft(x2, 1) ^ (t0 + t1 + k[r]);
+      x3 = Integer.rotateRight(x3 ^ (t0 + 2 * t1 + k[r + 1]), 1);
+    }
+
+    BitUtils.intToLittleEndian(x0 ^ k[0], out, outOff);
+    BitUtils.intToLittleEndian(x1 ^ k[1], out, outOff + 4);
+    BitUtils.intToLittleEndian(x2 ^ k[2], out, outOff + 8);
+    BitUtils.intToLittleEndian(x3 ^ k[3], out, outOff + 12);
+  }
+
+  private int[] requireSubKeys() {
+    int[] k = subKeys;
+    if (k == null) {
+      throw new IllegalStateException("Round keys not set");
+    }
+    return k;
+  }
+
   private int[] generateSBlocks(int[] M) {
     int k = M.length;
     byte[] keyBytes = new byte[k * 4];
@@ -107,7 +207,7 @@ public class TwoFishCipher extends FeistelNetwork {
       int[] s_i = new int[4];
       for (int row = 0; row < 4; row++) {
         for (int col = 0; col < block.length; col++) {
-          s_i[row] ^= TwoFishUtils.multiplyInGF256(TwoFishConfig.RS[row][col], block[col] & 0xFF, TwoFishConfig.RS_GF_FDBK);
+          s_i[row] ^= TwoFishUtils.multiplyInRsField(TwoFishConfig.RS[row][col] & 0xFF, block[col] & 0xFF);
         }
       }
 
@@ -9,10 +9,32 @@ import com.crypto.util.datatypes.RoundKey;
 import static com.crypto.twofish.TwoFishUtils.h;
 
 public class TwoFishCipherTransformation implements CipherTransformation {
+
+  private TwoFishSBoxes sBoxes;
+
+  /**
+   * Sets the key-dependent S-boxes of the owning cipher instance.
+   */
+  public void setSBoxes(TwoFishSBoxes sBoxes) {
+    this.sBoxes = sBoxes;
+  }
+
   @Override
   public Block transform(Block block, RoundKey roundKey) {
+    TwoFishSBoxes currentSBoxes = sBoxes;
+    if (currentSBoxes == null) {
+      throw new IllegalStateException("Round keys not set");
+    }
     int[] roundKeys = BitUtils.byteArrayToIntArray(roundKey.getData());
-    return new Block(performEncryptionConversion(block.getData(), roundKeys[0], roundKeys[1], TwoFishCipher.S));
+    byte[] bytes = block.getData();
+
+    int T0 = currentSBoxes.g(BitUtils.littleEndianToInt(bytes, 0));
+    int T1 = currentSBoxes.g(TwoFishUtils.ROL(BitUtils.littleEndianToInt(bytes, 4), 8));
+
+    byte[] out = new byte[8];
+    BitUtils.intToLittleEndian(T0 + T1 + roundKeys[0], out, 0);
+    BitUtils.intToLittleEndian(T0 + 2 * T1 + roundKeys[1], out, 4);
+    return new Block(out);
   }
 
   public byte[] performEncryptionConversion(byte[] bytes, int roundKey1, int roundKey2, int[] S) {
@@ -6,14 +6,22 @@ import com.crypto.util.BitUtils;
 import com.crypto.util.datatypes.Key;
 import com.crypto.util.datatypes.RoundKey;
 
-import java.util.HexFormat;
-
 public class TwoFishKeyExpansion implements KeyExpansion {
 
   @Override
   public RoundKey[] generateRoundKeys(Key key) {
+    int[] subKeys = generateSubKeys(key);
+    RoundKey[] roundKeys = new RoundKey[TwoFishConfig.TOTAL_ROUND_KEYS];
+    for (int i = 0; i < roundKeys.length; i++) {
+      roundKeys[i] = new RoundKey(BitUtils.intToByteArray(subKeys[i]));
+    }
+    return roundKeys;
+  }
 
-
+  /**
+   * Same 40 subkeys as {@link #generateRoundKeys(Key)}, as plain words.
+   */
+  public int[] generateSubKeys(Key key) {
     byte[] keyBytes = key.getData();
     if (!isValidKeySize(keyBytes.length)) {
       throw new IllegalArgumentException("Invalid key size: " + keyBytes.length + " bytes");
@@ -23,18 +31,18 @@ public class TwoFishKeyExpansion implements KeyExpansion {
     int[] ME = extractEvenWords(M);
     int[] MO = extractOddWords(M);
 
-    RoundKey[] roundKeys = new RoundKey[TwoFishConfig.TOTAL_ROUND_KEYS];
+    int[] subKeys = new int[TwoFishConfig.TOTAL_ROUND_KEYS];
 
     for (int i = 0; i < 20; i++) {
       int A = TwoFishUtils.h(2 * i * TwoFishConfig.RHO, ME, TwoFishConfig.GF_256_FDBK);
       int B = TwoFishUtils.h((2 * i + 1) * TwoFishConfig.RHO, MO, TwoFishConfig.GF_256_FDBK);
       B = TwoFishUtils.ROL(B, 8);
 
-      roundKeys[i * 2] = new RoundKey(BitUtils.intToByteArray(A + B));
-      roundKeys[i * 2 + 1] = new RoundKey(BitUtils.intToByteArray((TwoFishUtils.ROL(A + 2 * B, 9))));
+      subKeys[i * 2] = A + B;
+      subKeys[i * 2 + 1] = TwoFishUtils.ROL(A + 2 * B, 9);
     }
 
-    return roundKeys;
+    return subKeys;
   }
 
   private boolean isValidKeySize(int length) {
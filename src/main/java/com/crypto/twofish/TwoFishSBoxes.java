@@ -0,0 +1,41 @@
+package com.crypto.twofish;
+
+import com.crypto.twofish.config.TwoFishConfig;
+
+/**
+ * Key-dependent part of the Twofish g function for one key.
+ * <p>
+ * With full keying the four q-chains and the MDS multiply are folded into four 256-entry tables
+ * at key setup, so {@link #g(int)} is four lookups. Compact keying only keeps the S words and runs
+ * {@link TwoFishUtils#h} on every call, which makes key setup cheap for keys used on short messages.
+ */
+public final class TwoFishSBoxes {
+
+  private final int[] sWords;
+  private final int[][] keyedTables;
+
+  private TwoFishSBoxes(int[] sWords, int[][] keyedTables) {
+    this.sWords = sWords;
+    this.keyedTables = keyedTables;
+  }
+
+  public static TwoFishSBoxes fullKeying(int[] sWords) {
+    return new TwoFishSBoxes(sWords.clone(), TwoFishUtils.keyedSBoxes(sWords));
+  }
+
+  public static TwoFishSBoxes compactKeying(int[] sWords) {
+    return new TwoFishSBoxes(sWords.clone(), null);
+  }
+
+  public int g(int x) {
+    int[][] tables = keyedTables;
+    if (tables == null) {
+      return TwoFishUtils.h(x, sWords, TwoFishConfig.GF_256_FDBK);
+    }
+    return tables[0][x & 0xFF] ^ tables[1][(x >>> 8) & 0xFF] ^ tables[2][(x >>> 16) & 0xFF] ^ tables[3][x >>> 24];
+  }
+
+  public boolean isFullyKeyed() {
+    return keyedTables != null;
+  }
+}
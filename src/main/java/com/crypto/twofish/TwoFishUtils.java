@@ -2,87 +2,97 @@ package com.crypto.twofish;
 
 import com.crypto.twofish.config.TwoFishConfig;
 
+import static com.crypto.twofish.config.TwoFishConfig.*;
+
 public class TwoFishUtils {
 
   public TwoFishUtils() {
   }
 
+  /**
+   * Перестановки q для {@link #keyedSBoxes}: строки — стадии со словами L[3], L[2], L[1], L[0] и
+   * выходная, столбцы — номер байта. {@link #h} вызывается на каждом раунде в компактном режиме и
+   * потому оставлен развёрнутым.
+   */
+  private static final int[][][] Q_CHAIN = {
+          {Q1, Q0, Q0, Q1},
+          {Q1, Q1, Q0, Q0},
+          {Q0, Q1, Q0, Q1},
+          {Q0, Q0, Q1, Q1},
+          {Q1, Q0, Q1, Q0}
+  };
+
   /**
    * @param x    входное 32-битное слово
    * @param L    массив(для ключа M_O или M_E, для g используются S-Box)
    * @param mask маска для умножения в GF(2^8)
    */
   public static int h(int x, int[] L, int mask) {
-    byte[] y = new byte[4];
-    y[0] = (byte) (x & 0xFF);
-    y[1] = (byte) ((x >> 8) & 0xFF);
-    y[2] = (byte) ((x >> 16) & 0xFF);
-    y[3] = (byte) ((x >> 24) & 0xFF);
+    int y0 = x & 0xFF;
+    int y1 = (x >>> 8) & 0xFF;
+    int y2 = (x >>> 16) & 0xFF;
+    int y3 = x >>> 24;
 
     int k = L.length;
     if (k >= 4) {
-      y[0] = (byte) (q1(y[0]) ^ ((L[3] >> 24) & 0xFF));
-      y[1] = (byte) (q0(y[1]) ^ ((L[3] >> 16) & 0xFF));
-      y[2] = (byte) (q0(y[2]) ^ ((L[3] >> 8) & 0xFF));
-      y[3] = (byte) (q1(y[3]) ^ (L[3] & 0xFF));
+      y0 = Q1[y0] ^ (L[3] & 0xFF);
+      y1 = Q0[y1] ^ ((L[3] >>> 8) & 0xFF);
+      y2 = Q0[y2] ^ ((L[3] >>> 16) & 0xFF);
+      y3 = Q1[y3] ^ (L[3] >>> 24);
     }
 
     if (k >= 3) {
-      y[0] = (byte) (q1(y[0]) ^ ((L[2] >> 24) & 0xFF));
-      y[1] = (byte) (q1(y[1]) ^ ((L[2] >> 16) & 0xFF));
-      y[2] = (byte) (q0(y[2]) ^ ((L[2] >> 8) & 0xFF));
-      y[3] = (byte) (q0(y[3]) ^ (L[2] & 0xFF));
+      y0 = Q1[y0] ^ (L[2] & 0xFF);
+      y1 = Q1[y1] ^ ((L[2] >>> 8) & 0xFF);
+      y2 = Q0[y2] ^ ((L[2] >>> 16) & 0xFF);
+      y3 = Q0[y3] ^ (L[2] >>> 24);
     }
 
-    y[0] = q1((byte) (q0((byte) (q0(y[0]) ^ ((L[1] >> 24) & 0xFF))) ^ ((L[0] >> 24) & 0xFF)));
-    y[1] = q0((byte) (q0((byte) (q1(y[1]) ^ ((L[1] >> 16) & 0xFF))) ^ ((L[0] >> 16) & 0xFF)));
-    y[2] = q1((byte) (q1((byte) (q0(y[2]) ^ ((L[1] >> 8) & 0xFF))) ^ ((L[0] >> 8) & 0xFF)));
-    y[3] = q0((byte) (q1((byte) (q1(y[3]) ^ (L[1] & 0xFF))) ^ (L[0] & 0xFF)));
+    y0 = Q1[Q0[Q0[y0] ^ (L[1] & 0xFF)] ^ (L[0] & 0xFF)];
+    y1 = Q0[Q0[Q1[y1] ^ ((L[1] >>> 8) & 0xFF)] ^ ((L[0] >>> 8) & 0xFF)];
+    y2 = Q1[Q1[Q0[y2] ^ ((L[1] >>> 16) & 0xFF)] ^ ((L[0] >>> 16) & 0xFF)];
+    y3 = Q0[Q1[Q1[y3] ^ (L[1] >>> 24)] ^ (L[0] >>> 24)];
 
-    return multiplyWithMds(y, mask);
+    if (mask == TwoFishConfig.GF_256_FDBK) {
+      return MDS_COLUMNS[0][y0] ^ MDS_COLUMNS[1][y1] ^ MDS_COLUMNS[2][y2] ^ MDS_COLUMNS[3][y3];
+    }
+    return multiplyWithMds(new byte[]{(byte) y0, (byte) y1, (byte) y2, (byte) y3}, mask);
   }
 
-  public static byte q0(byte x) {
-    return substituteWithQ(
-            x,
-            TwoFishConfig.q0_t0,
-            TwoFishConfig.q0_t1,
-            TwoFishConfig.q0_t2,
-            TwoFishConfig.q0_t3
-    );
+  /**
+   * Четыре S-блока с ключом для слов S: элемент {@code [j][v]} — вклад байта {@code j} со
+   * значением {@code v} в {@code h(x, L, GF_256_FDBK)}, то есть цепочка q байта {@code j} и
+   * столбец {@code j} матрицы MDS.
+   */
+  public static int[][] keyedSBoxes(int[] L) {
+    int[][] tables = new int[4][256];
+    for (int j = 0; j < 4; j++) {
+      for (int v = 0; v < 256; v++) {
+        tables[j][v] = MDS_COLUMNS[j][qChain(j, v, L)];
+      }
+    }
+    return tables;
   }
 
-  public static byte q1(byte x) {
-    return substituteWithQ(
-            x,
-            TwoFishConfig.q1_t0,
-            TwoFishConfig.q1_t1,
-            TwoFishConfig.q1_t2,
-            TwoFishConfig.q1_t3
-    );
+  /**
+   * Цепочка перестановок q для байта {@code byteIndex} со значением {@code v}: по стадии на
+   * каждое слово L начиная со старшего, затем выходная перестановка.
+   */
+  private static int qChain(int byteIndex, int v, int[] L) {
+    int shift = 8 * byteIndex;
+    int y = v;
+    for (int i = L.length - 1; i >= 0; i--) {
+      y = Q_CHAIN[3 - i][byteIndex][y] ^ ((L[i] >>> shift) & 0xFF);
+    }
+    return Q_CHAIN[4][byteIndex][y];
   }
 
-  private static byte substituteWithQ(byte x, byte[] t0, byte[] t1, byte[] t2, byte[] t3) {
-    int a0 = (x >>> 4) & 0xF;
-    int b0 = x & 0xF;
-
-    int a1 = a0 ^ b0;
-    int b1 = a0 ^ ror4(b0, 1) ^ ((8 * a0) & 0xF);
-
-    int a2 = t0[a1 & 0xF] & 0xF;
-    int b2 = t1[b1 & 0xF] & 0xF;
-
-    int a3 = a2 ^ b2;
-    int b3 = a2 ^ ror4(b2, 1) ^ ((8 * a2) & 0xF);
-
-    int a4 = t2[a3 & 0xF] & 0xF;
-    int b4 = t3[b3 & 0xF] & 0xF;
-
-    return (byte) ((b4 << 4) | a4);
+  public static byte q0(byte x) {
+    return (byte) Q0[x & 0xFF];
   }
 
-  private static int ror4(int val, int n) {
-    return ((val >>> n) | (val << (4 - n))) & 0xF;
+  public static byte q1(byte x) {
+    return (byte) Q1[x & 0xFF];
   }
 
   private static int multiplyWithMds(byte[] y, int mask) {
@@ -119,6 +129,16 @@ public class TwoFishUtils {
     return result & 0xFF;
   }
 
+  /**
+   * Умножение в поле RS-кода (GF(2^8) по {@link TwoFishConfig#RS_GF_FDBK}) через таблицы логарифмов и степеней.
+   */
+  public static int multiplyInRsField(int a, int b) {
+    if (a == 0 || b == 0) {
+      return 0;
+    }
+    return RS_EXP[RS_LOG[a] + RS_LOG[b]];
+  }
+
   public static int ROL(int x, int n) {
     return (x << n) | (x >>> (32 - n));
   }
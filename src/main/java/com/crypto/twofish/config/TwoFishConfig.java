@@ -79,4 +79,95 @@ public class TwoFishConfig {
           (byte) 0x6, (byte) 0x4, (byte) 0x7, (byte) 0xF,
           (byte) 0x2, (byte) 0x0, (byte) 0x8, (byte) 0xA
   };
+
+  // key-independent lookup tables, built once from the definitions above
+
+  /**
+   * Full 256-entry q0 and q1 permutations.
+   */
+  public static final int[] Q0 = buildQ(q0_t0, q0_t1, q0_t2, q0_t3);
+  public static final int[] Q1 = buildQ(q1_t0, q1_t1, q1_t2, q1_t3);
+
+  /**
+   * {@code MDS_COLUMNS[j][y]} is column {@code j} of {@link #MDS_MATRIX} multiplied by {@code y}
+   * in GF(2^8) over {@link #GF_256_FDBK}, packed little-endian. Multiplying a vector by MDS becomes
+   * an XOR of four lookups.
+   */
+  public static final int[][] MDS_COLUMNS = buildMdsColumns();
+
+  /**
+   * Exponent and logarithm tables of GF(2^8) over {@link #RS_GF_FDBK} with generator 2.
+   * {@code RS_EXP} is doubled in length so that {@code RS_EXP[RS_LOG[a] + RS_LOG[b]]} needs no reduction.
+   */
+  public static final int[] RS_EXP = new int[510];
+  public static final int[] RS_LOG = new int[256];
+
+  static {
+    int value = 1;
+    for (int i = 0; i < 255; i++) {
+      RS_EXP[i] = value;
+      RS_EXP[i + 255] = value;
+      RS_LOG[value] = i;
+      value <<= 1;
+      if ((value & 0x100) != 0) {
+        value ^= RS_GF_FDBK;
+      }
+    }
+  }
+
+  private static int[] buildQ(byte[] t0, byte[] t1, byte[] t2, byte[] t3) {
+    int[] q = new int[256];
+    for (int x = 0; x < 256; x++) {
+      int a0 = (x >>> 4) & 0xF;
+      int b0 = x & 0xF;
+
+      int a1 = a0 ^ b0;
+      int b1 = a0 ^ ror4(b0) ^ ((8 * a0) & 0xF);
+
+      int a2 = t0[a1 & 0xF] & 0xF;
+      int b2 = t1[b1 & 0xF] & 0xF;
+
+      int a3 = a2 ^ b2;
+      int b3 = a2 ^ ror4(b2) ^ ((8 * a2) & 0xF);
+
+      int a4 = t2[a3 & 0xF] & 0xF;
+      int b4 = t3[b3 & 0xF] & 0xF;
+
+      q[x] = (b4 << 4) | a4;
+    }
+    return q;
+  }
+
+  private static int ror4(int val) {
+    return ((val >>> 1) | (val << 3)) & 0xF;
+  }
+
+  private static int[][] buildMdsColumns() {
+    int[][] columns = new int[4][256];
+    for (int j = 0; j < 4; j++) {
+      for (int y = 0; y < 256; y++) {
+        int column = 0;
+        for (int i = 0; i < 4; i++) {
+          column |= multiply(MDS_MATRIX[i][j] & 0xFF, y, GF_256_FDBK) << (8 * i);
+        }
+        columns[j][y] = column;
+      }
+    }
+    return columns;
+  }
+
+  private static int multiply(int a, int b, int mask) {
+    int result = 0;
+    while (b != 0) {
+      if ((b & 1) != 0) {
+        result ^= a;
+      }
+      a <<= 1;
+      if ((a & 0x100) != 0) {
+        a ^= mask;
+      }
+      b >>>= 1;
+    }
+    return result;
+  }
 }
@@ -19,11 +19,15 @@ public class BitPermutor {
       this.bitIndex = bitIndex;
     }
 
-    private int getValue() {
+    int getValue() {
       return bitIndex;
     }
   }
 
+  /**
+   * Bit-by-bit reference implementation. Hot paths should use a {@link CompiledPermutation}
+   * built once from the same table.
+   */
   public static byte[] permuteBits(byte[] input, int[] permutation, BitOrder bitOrder, StartingBitIndex startingBitIndex) {
 
     input = BitUtils.reverseArray(input);
@@ -1,9 +1,21 @@
 package com.crypto.util;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.BitSet;
 
 public class BitUtils {
 
+  private static final VarHandle INT_BIG_ENDIAN =
+          MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle INT_LITTLE_ENDIAN =
+          MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONG_BIG_ENDIAN =
+          MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle LONG_LITTLE_ENDIAN =
+          MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
   public static byte[] reverseArray(byte[] input) {
     byte[] reversed = new byte[input.length];
     for (int i = 0; i < input.length; i++) {
@@ -33,6 +45,13 @@ public class BitUtils {
    *                 }</pre>
    */
   public static byte[] rotateLeft(byte[] data, int rotation, int startBit, int bitCount) {
+    if (data.length <= 8) {
+      int lowerBound = data.length * 8 - bitCount - startBit;
+      long value = byteArrayToLong(data, 0, data.length);
+      long mask = lowBitsMask(bitCount) << lowerBound;
+      long slice = rotateLeft(value >>> lowerBound, rotation, bitCount);
+      return longToByteArray((value & ~mask) | (slice << lowerBound), data.length);
+    }
 
     if (rotation < 0) {
       rotation = bitCount + (rotation % bitCount);
@@ -70,6 +89,12 @@ public class BitUtils {
       throw new IllegalArgumentException("Shift value must be non-negative");
     }
 
+    if (data.length <= 8) {
+      int lowerBound = data.length * 8 - bitCount - startBit;
+      long slice = shiftLeft(byteArrayToLong(data, 0, data.length) >>> lowerBound, shift, bitCount);
+      return longToByteArray(slice << lowerBound, data.length);
+    }
+
     data = reverseArray(data);
 
     BitSet bits = BitSet.valueOf(data);
@@ -100,17 +125,108 @@ public class BitUtils {
   }
 
   public static int rotateLeft(int x, int bits) {
-    return (x << bits) | (x >>> -bits);
+    return Integer.rotateLeft(x, bits);
+  }
+
+  public static int rotateRight(int x, int bits) {
+    return Integer.rotateRight(x, bits);
+  }
+
+  /**
+   * Rotates the lowest {@code bitCount} bits of {@code value} left by {@code rotation} (negative
+   * rotates right). Higher bits of the result are zero.
+   */
+  public static long rotateLeft(long value, int rotation, int bitCount) {
+    if (bitCount == 64) {
+      return Long.rotateLeft(value, rotation);
+    }
+    rotation = Math.floorMod(rotation, bitCount);
+    long mask = lowBitsMask(bitCount);
+    value &= mask;
+    if (rotation == 0) {
+      return value;
+    }
+    return ((value << rotation) | (value >>> (bitCount - rotation))) & mask;
+  }
+
+  /**
+   * Shifts the lowest {@code bitCount} bits of {@code value} left by {@code shift}, dropping bits
+   * that leave the slice. Higher bits of the result are zero.
+   */
+  public static long shiftLeft(long value, int shift, int bitCount) {
+    if (shift >= bitCount) {
+      return 0;
+    }
+    return (value << shift) & lowBitsMask(bitCount);
+  }
+
+  /**
+   * Rotates the big-endian 32-bit word at {@code data[offset..offset + 3]} in place.
+   */
+  public static void rotateLeftInt(byte[] data, int offset, int rotation) {
+    INT_BIG_ENDIAN.set(data, offset, Integer.rotateLeft((int) INT_BIG_ENDIAN.get(data, offset), rotation));
+  }
+
+  private static long lowBitsMask(int bitCount) {
+    return bitCount >= 64 ? -1L : (1L << bitCount) - 1;
   }
 
   public static byte[] xor(byte[] a, byte[] b) {
     byte[] result = new byte[a.length];
-    for (int i = 0; i < a.length; i++) {
-      result[i] = (byte) (a[i] ^ b[i]);
-    }
+    xor(a, 0, b, 0, result, 0, a.length);
     return result;
   }
 
+  /**
+   * Writes {@code length} bytes of {@code a ^ b} into {@code out}. Any of the arrays may be the same
+   * array, so {@code xor(a, 0, b, 0, a, 0, n)} xors {@code b} into {@code a} in place.
+   */
+  public static void xor(byte[] a, int aOff, byte[] b, int bOff, byte[] out, int outOff, int length) {
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      LONG_LITTLE_ENDIAN.set(out, outOff + i,
+              (long) LONG_LITTLE_ENDIAN.get(a, aOff + i) ^ (long) LONG_LITTLE_ENDIAN.get(b, bOff + i));
+    }
+    for (; i < length; i++) {
+      out[outOff + i] = (byte) (a[aOff + i] ^ b[bOff + i]);
+    }
+  }
+
+  /**
+   * Adds {@code value} (unsigned) to the big-endian number in {@code bytes[from..to)}, modulo
+   * {@code 2^(8 * (to - from))}.
+   */
+  public static void addBigEndian(byte[] bytes, int from, int to, long value) {
+    long carry = value;
+    for (int i = to - 1; i >= from && carry != 0; i--) {
+      long sum = (bytes[i] & 0xFF) + (carry & 0xFF);
+      bytes[i] = (byte) sum;
+      carry = (carry >>> 8) + (sum >>> 8);
+    }
+  }
+
+  /**
+   * Adds {@code multiplier} times the big-endian number in {@code addend[addendFrom..addendTo)} to
+   * the big-endian number in {@code bytes[from..to)}, modulo {@code 2^(8 * (to - from))}.
+   * {@code multiplier} must not be negative.
+   */
+  public static void addMultipleBigEndian(byte[] bytes, int from, int to,
+                                          byte[] addend, int addendFrom, int addendTo, int multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must not be negative");
+    }
+    long carry = 0;
+    for (int i = to - 1, j = addendTo - 1; i >= from; i--, j--) {
+      if (j < addendFrom && carry == 0) {
+        break;
+      }
+      long product = (j >= addendFrom) ? (addend[j] & 0xFFL) * multiplier : 0;
+      long sum = (bytes[i] & 0xFF) + product + carry;
+      bytes[i] = (byte) sum;
+      carry = sum >>> 8;
+    }
+  }
+
   /**
    * rearranges bytes in inverse order inside each 4-byte group
    */
@@ -210,59 +326,68 @@ public class BitUtils {
     if (byteArray.length % 4 != 0) {
       throw new IllegalArgumentException("Input array length must be a multiple of 4");
     }
-    int length = byteArray.length / 4;
-    int[] intArray = new int[length];
+    int[] intArray = new int[byteArray.length / 4];
+    byteArrayToIntArray(byteArray, 0, intArray, 0, intArray.length);
+    return intArray;
+  }
 
-    for (int i = 0; i < length; i++) {
-      int offset = i * 4;
-      intArray[i] = ((byteArray[offset] & 0xFF) << 24) |
-                    ((byteArray[offset + 1] & 0xFF) << 16) |
-                    ((byteArray[offset + 2] & 0xFF) << 8) |
-                    (byteArray[offset + 3] & 0xFF);
+  /**
+   * Reads {@code count} big-endian words from {@code in} starting at {@code inOff}.
+   */
+  public static void byteArrayToIntArray(byte[] in, int inOff, int[] out, int outOff, int count) {
+    for (int i = 0; i < count; i++) {
+      out[outOff + i] = (int) INT_BIG_ENDIAN.get(in, inOff + 4 * i);
     }
-
-    return intArray;
   }
 
   public static int[] byteArrayToLittleEndianArray(byte[] byteArray) {
     if (byteArray.length % 4 != 0) {
       throw new IllegalArgumentException("Input array length must be a multiple of 4");
     }
-    int length = byteArray.length / 4;
-    int[] intArray = new int[length];
+    int[] intArray = new int[byteArray.length / 4];
+    byteArrayToLittleEndianArray(byteArray, 0, intArray, 0, intArray.length);
+    return intArray;
+  }
 
-    for (int i = 0; i < length; i++) {
-      int offset = i * 4;
-      intArray[i] = ((byteArray[offset] & 0xFF)) |
-                    ((byteArray[offset + 1] & 0xFF) << 8) |
-                    ((byteArray[offset + 2] & 0xFF) << 16) |
-                    ((byteArray[offset + 3] & 0xFF) << 24);
+  /**
+   * Reads {@code count} little-endian words from {@code in} starting at {@code inOff}.
+   */
+  public static void byteArrayToLittleEndianArray(byte[] in, int inOff, int[] out, int outOff, int count) {
+    for (int i = 0; i < count; i++) {
+      out[outOff + i] = (int) INT_LITTLE_ENDIAN.get(in, inOff + 4 * i);
     }
-
-    return intArray;
   }
 
   public static byte[] intArrayToByteArray(int[] ints) {
     byte[] byteArray = new byte[ints.length * 4];
-    for (int i = 0; i < ints.length; i++) {
-      byteArray[i * 4] = (byte) (ints[i] >> 24);
-      byteArray[i * 4 + 1] = (byte) (ints[i] >> 16);
-      byteArray[i * 4 + 2] = (byte) (ints[i] >> 8);
-      byteArray[i * 4 + 3] = (byte) (ints[i]);
-    }
+    intArrayToByteArray(ints, 0, byteArray, 0, ints.length);
     return byteArray;
   }
+
+  /**
+   * Writes {@code count} words into {@code out} starting at {@code outOff}, big-endian.
+   */
+  public static void intArrayToByteArray(int[] in, int inOff, byte[] out, int outOff, int count) {
+    for (int i = 0; i < count; i++) {
+      INT_BIG_ENDIAN.set(out, outOff + 4 * i, in[inOff + i]);
+    }
+  }
+
   public static byte[] littleEndianArrayToByteArray(int[] ints) {
     byte[] byteArray = new byte[ints.length * 4];
-    for (int i = 0; i < ints.length; i++) {
-      byteArray[i * 4] = (byte) (ints[i]);
-      byteArray[i * 4 + 1] = (byte) (ints[i] >> 8);
-      byteArray[i * 4 + 2] = (byte) (ints[i] >> 16);
-      byteArray[i * 4 + 3] = (byte) (ints[i] >> 24);
-    }
+    littleEndianArrayToByteArray(ints, 0, byteArray, 0, ints.length);
     return byteArray;
   }
 
+  /**
+   * Writes {@code count} words into {@code out} starting at {@code outOff}, little-endian.
+   */
+  public static void littleEndianArrayToByteArray(int[] in, int inOff, byte[] out, int outOff, int count) {
+    for (int i = 0; i < count; i++) {
+      INT_LITTLE_ENDIAN.set(out, outOff + 4 * i, in[inOff + i]);
+    }
+  }
+
   public static byte[] intToByteArray(int value) {
     return new byte[]{
             (byte) ((value >> 24) & 0xFF),
@@ -282,10 +407,51 @@ public class BitUtils {
   }
 
   public static int littleEndianToInt(byte[] bs, int off) {
-    int n = bs[off] & 0xff;
-    n |= (bs[++off] & 0xff) << 8;
-    n |= (bs[++off] & 0xff) << 16;
-    n |= bs[++off] << 24;
-    return n;
+    return (int) INT_LITTLE_ENDIAN.get(bs, off);
+  }
+
+  public static void intToLittleEndian(int value, byte[] bs, int off) {
+    INT_LITTLE_ENDIAN.set(bs, off, value);
+  }
+
+  public static int bigEndianToInt(byte[] bs, int off) {
+    return (int) INT_BIG_ENDIAN.get(bs, off);
+  }
+
+  public static void intToBigEndian(int value, byte[] bs, int off) {
+    INT_BIG_ENDIAN.set(bs, off, value);
+  }
+
+  public static long bigEndianToLong(byte[] bs, int off) {
+    return (long) LONG_BIG_ENDIAN.get(bs, off);
+  }
+
+  public static void longToBigEndian(long value, byte[] bs, int off) {
+    LONG_BIG_ENDIAN.set(bs, off, value);
+  }
+
+  /**
+   * Reads {@code length} (at most 8) bytes starting at {@code off} as a big-endian number.
+   */
+  public static long byteArrayToLong(byte[] bs, int off, int length) {
+    if (length == 8) {
+      return bigEndianToLong(bs, off);
+    }
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      value = (value << 8) | (bs[off + i] & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Returns the lowest {@code length} (at most 8) bytes of {@code value}, big-endian.
+   */
+  public static byte[] longToByteArray(long value, int length) {
+    byte[] result = new byte[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = (byte) (value >>> (8 * (length - 1 - i)));
+    }
+    return result;
   }
 }
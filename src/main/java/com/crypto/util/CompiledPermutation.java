@@ -0,0 +1,104 @@
+package com.crypto.util;
+
+import lombok.Getter;
+
+/**
+ * Перестановка битов, один раз скомпилированная из таблицы перестановки в побайтовые таблицы
+ * поиска. Для каждого входного байта и каждого из 256 его значений таблица хранит выходные биты,
+ * которые этот байт даёт, так что перестановка сводится к одному поиску и одному OR на байт входа.
+ * <p>
+ * Вход и выход ограничены 64 битами и хранятся выровненными вправо в {@code long}. Вариант над
+ * массивом байтов повторяет {@link BitPermutor#permuteBits}, который остаётся медленной эталонной
+ * реализацией.
+ */
+public final class CompiledPermutation {
+
+  @Getter
+  private final int inputBits;
+  @Getter
+  private final int outputBits;
+  private final long[][] lookup;
+
+  /**
+   * То же, что {@link #CompiledPermutation(int[], int, BitPermutor.BitOrder, BitPermutor.StartingBitIndex)}
+   * с нумерацией от старшего бита и с единицы, как в таблицах DES.
+   */
+  public CompiledPermutation(int[] permutation, int inputBits) {
+    this(permutation, inputBits,
+            BitPermutor.BitOrder.MostSignificantToLeastSignificant,
+            BitPermutor.StartingBitIndex.ONE);
+  }
+
+  /**
+   * @param permutation      выходной бит {@code i} — это входной бит {@code permutation[i]}
+   * @param inputBits        ширина входа в битах, не больше 64
+   * @param bitOrder         порядок отсчёта индексов в {@code permutation}
+   * @param startingBitIndex индекс первого бита
+   */
+  public CompiledPermutation(int[] permutation, int inputBits,
+                             BitPermutor.BitOrder bitOrder, BitPermutor.StartingBitIndex startingBitIndex) {
+    if (inputBits <= 0 || inputBits > 64 || permutation.length == 0 || permutation.length > 64) {
+      throw new IllegalArgumentException("Compiled permutations support 1 to 64 input and output bits");
+    }
+    this.inputBits = inputBits;
+    this.outputBits = permutation.length;
+
+    int inputBytes = (inputBits + 7) / 8;
+    this.lookup = new long[inputBytes][256];
+
+    for (int i = 0; i < outputBits; i++) {
+      int index = permutation[i] - startingBitIndex.getValue();
+      if (index < 0 || index >= inputBits) {
+        throw new IllegalArgumentException("Permutation index " + permutation[i] + " is out of range");
+      }
+      int sourceBit = (bitOrder == BitPermutor.BitOrder.LeastSignificantToMostSignificant)
+              ? index
+              : inputBits - 1 - index;
+      long outputMask = 1L << (outputBits - 1 - i);
+
+      long[] byteTable = lookup[sourceBit / 8];
+      int bitInByte = sourceBit % 8;
+      for (int value = 0; value < 256; value++) {
+        if (((value >>> bitInByte) & 1) != 0) {
+          byteTable[value] |= outputMask;
+        }
+      }
+    }
+  }
+
+  /**
+   * @param input значение, младшие {@code inputBits} битов которого переставляются
+   * @return результат перестановки в младших {@code outputBits} битах
+   */
+  public long permute(long input) {
+    long result = 0;
+    for (int i = 0; i < lookup.length; i++) {
+      result |= lookup[i][(int) (input >>> (8 * i)) & 0xFF];
+    }
+    return result;
+  }
+
+  /**
+   * Вариант над массивом байтов, биты берутся от старшего. Результат выровнен влево в
+   * {@code (outputBits + 7) / 8} байтах.
+   */
+  public byte[] permute(byte[] input) {
+    if (input.length * 8 < inputBits || input.length > 8) {
+      throw new IllegalArgumentException("Input of " + input.length + " bytes does not match " + inputBits + " input bits");
+    }
+    long value = 0;
+    for (byte b : input) {
+      value = (value << 8) | (b & 0xFF);
+    }
+    value >>>= input.length * 8 - inputBits;
+
+    int outputBytes = (outputBits + 7) / 8;
+    long permuted = permute(value) << (outputBytes * 8 - outputBits);
+    byte[] result = new byte[outputBytes];
+    for (int i = 0; i < outputBytes; i++) {
+      result[i] = (byte) (permuted >>> (8 * (outputBytes - 1 - i)));
+    }
+    return result;
+  }
+
+}
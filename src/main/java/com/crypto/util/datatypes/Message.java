@@ -3,63 +3,132 @@ package com.crypto.util.datatypes;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
-@Getter
-@Setter
+/**
+ * Сообщение поверх одного непрерывного массива: {@code length} байт начиная с {@code offset}.
+ * Блоки не хранятся отдельно, а адресуются смещением {@code offset + i * blockSize}, так что
+ * режимы шифрования работают прямо по буферу.
+ */
 public class Message {
 
-  private Block[] blocks;
+  @Getter
+  private final byte[] buffer;
+  @Getter
+  private final int offset;
+  @Getter
+  private final int length;
+  @Getter
+  @Setter
   private int blockSize;
 
+  /**
+   * Оборачивает {@code data} без копирования.
+   */
   public Message(byte[] data, int blockSize) {
+    this(data, 0, data.length, blockSize);
+  }
+
+  /**
+   * Оборачивает {@code length} байт {@code buffer} начиная с {@code offset} без копирования.
+   */
+  public Message(byte[] buffer, int offset, int length, int blockSize) {
+    if (offset < 0 || length < 0 || offset + length > buffer.length) {
+      throw new IllegalArgumentException("Message range is out of buffer bounds");
+    }
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
     this.blockSize = blockSize;
-    this.blocks = splitIntoBlocks(data, blockSize);
   }
 
+  /**
+   * Копия сообщения со своим буфером.
+   */
   public Message(Message message) {
-    this.blockSize = message.blockSize;
-    this.blocks = message.blocks.clone();
+    this(Arrays.copyOfRange(message.buffer, message.offset, message.offset + message.length), message.blockSize);
   }
 
   public Message(String text, int blockSize) {
     this(text.getBytes(), blockSize);
   }
 
+  public Message(Block[] blocks, int blockSize) {
+    this(joinBlocks(blocks), blockSize);
+  }
+
   @Override
   public String toString() {
-    byte[] data = getData();
-    return new String(data, StandardCharsets.UTF_8);
+    return new String(buffer, offset, length, StandardCharsets.UTF_8);
   }
 
-  public Message(Block[] blocks, int blockSize) {
-    this.blocks = blocks;
-    this.blockSize = blockSize;
+  /**
+   * Содержимое сообщения. Если сообщение занимает весь буфер, возвращается сам буфер без
+   * копирования, иначе копия диапазона.
+   */
+  public byte[] getData() {
+    if (offset == 0 && length == buffer.length) {
+      return buffer;
+    }
+    return Arrays.copyOfRange(buffer, offset, offset + length);
   }
 
-  public byte[] getData() {
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    for (Block block : blocks) {
-      try {
-        outputStream.write(block.getData());
-      } catch (IOException e) {
-        throw new RuntimeException("Ошибка при объединении блоков", e);
-      }
+  /**
+   * Представление сообщения без копирования.
+   */
+  public ByteBuffer asByteBuffer() {
+    return ByteBuffer.wrap(buffer, offset, length).slice();
+  }
+
+  public int getBlockCount() {
+    return (length + blockSize - 1) / blockSize;
+  }
+
+  /**
+   * Смещение блока {@code index} в {@link #getBuffer()}.
+   */
+  public int blockOffset(int index) {
+    return offset + index * blockSize;
+  }
+
+  /**
+   * Представление блока {@code index} без копирования; последний блок может быть короче.
+   */
+  public ByteBuffer blockView(int index) {
+    int start = index * blockSize;
+    if (index < 0 || start >= length) {
+      throw new IndexOutOfBoundsException("Block index " + index + " out of " + getBlockCount());
     }
-    return outputStream.toByteArray();
+    return ByteBuffer.wrap(buffer, offset + start, Math.min(blockSize, length - start)).slice();
   }
 
-  public Block[] splitIntoBlocks(byte[] data, int blockSize) {
-    List<Block> splitBlocks = new ArrayList<>();
-    for (int i = 0; i < data.length; i += blockSize) {
-      int length = Math.min(blockSize, data.length - i);
-      splitBlocks.add(new Block(Arrays.copyOfRange(data, i, i + length)));
+  /**
+   * Копии блоков; последний блок может быть короче. Для работы без копирования есть
+   * {@link #blockView(int)} и {@link #blockOffset(int)}.
+   */
+  public Block[] getBlocks() {
+    Block[] blocks = new Block[getBlockCount()];
+    for (int i = 0; i < blocks.length; i++) {
+      int start = offset + i * blockSize;
+      blocks[i] = new Block(Arrays.copyOfRange(buffer, start, Math.min(start + blockSize, offset + length)));
+    }
+    return blocks;
+  }
+
+  private static byte[] joinBlocks(Block[] blocks) {
+    int total = 0;
+    for (Block block : blocks) {
+      total += block.getData().length;
+    }
+    byte[] data = new byte[total];
+    int position = 0;
+    for (Block block : blocks) {
+      byte[] blockData = block.getData();
+      System.arraycopy(blockData, 0, data, position, blockData.length);
+      position += blockData.length;
     }
-    return splitBlocks.toArray(new Block[0]);
+    return data;
   }
 }
@@ -0,0 +1,47 @@
+package com.crypto.cipher;
+
+import com.crypto.util.datatypes.Block;
+import com.crypto.util.datatypes.Key;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Сверка быстрой реализации шифра с эталонной на случайных ключах и блоках.
+ */
+public final class CipherCrossCheck {
+
+  private CipherCrossCheck() {
+  }
+
+  /**
+   * Для {@code trials} случайных пар ключ/блок проверяет, что {@code candidate} шифрует так же, как
+   * {@code reference}, и расшифровывает свой результат обратно. Шифры создаются заново на каждую
+   * пару, а генератор засеян {@code seed}, так что упавшая проверка воспроизводится.
+   *
+   * @param keySize размер ключа в байтах
+   */
+  public static void assertMatchesReference(Supplier<? extends SymmetricCipher> reference,
+                                            Supplier<? extends SymmetricCipher> candidate,
+                                            int keySize, int trials, long seed) {
+    Random random = new Random(seed);
+    for (int i = 0; i < trials; i++) {
+      SymmetricCipher referenceCipher = reference.get();
+      SymmetricCipher candidateCipher = candidate.get();
+      byte[] keyBytes = new byte[keySize];
+      byte[] blockBytes = new byte[referenceCipher.getBlockSize()];
+      random.nextBytes(keyBytes);
+      random.nextBytes(blockBytes);
+
+      referenceCipher.setRoundKeys(new Key(keyBytes));
+      candidateCipher.setRoundKeys(new Key(keyBytes));
+
+      byte[] expected = referenceCipher.encryptBlock(new Block(blockBytes)).getData();
+      byte[] actual = candidateCipher.encryptBlock(new Block(blockBytes)).getData();
+      assertArrayEquals(expected, actual, "trial " + i);
+      assertArrayEquals(blockBytes, candidateCipher.decryptBlock(new Block(actual)).getData(), "trial " + i);
+    }
+  }
+}
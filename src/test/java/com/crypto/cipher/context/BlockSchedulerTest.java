@@ -0,0 +1,101 @@
+package com.crypto.cipher.context;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockSchedulerTest {
+
+  @Test
+  void testNestedRunOnBoundedPoolDoesNotDeadlock() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      BlockScheduler scheduler = new BlockScheduler(pool);
+      int blockSize = 16;
+      int blockCount = 64 * scheduler.chunkBlocks(blockSize);
+      AtomicIntegerArray[] visits = {new AtomicIntegerArray(blockCount), new AtomicIntegerArray(blockCount)};
+
+      // оба потока пула заняты внешними задачами, так что помощники внутреннего run не начнутся
+      List<Future<?>> outer = List.of(
+              pool.submit(() -> runSlowly(scheduler, blockCount, blockSize, visits[0])),
+              pool.submit(() -> runSlowly(scheduler, blockCount, blockSize, visits[1])));
+      for (Future<?> future : outer) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+
+      for (AtomicIntegerArray visit : visits) {
+        for (int block = 0; block < blockCount; block++) {
+          assertEquals(1, visit.get(block));
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void testCallerExceptionKeepsHelperExceptionSuppressed() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      BlockScheduler scheduler = new BlockScheduler(pool);
+      int blockSize = 16;
+      int blockCount = 8 * scheduler.chunkBlocks(blockSize);
+      Thread caller = Thread.currentThread();
+      AtomicBoolean measured = new AtomicBoolean();
+      // оба потока входят в свою часть до того, как кто-то из них бросит исключение
+      CountDownLatch bothStarted = new CountDownLatch(2);
+
+      IllegalStateException thrown = assertThrows(IllegalStateException.class, () ->
+              scheduler.run(blockCount, blockSize, (firstBlock, count) -> {
+                if (measured.compareAndSet(false, true)) {
+                  // первая часть — последовательный замер; дорогая, чтобы остальное пошло параллельно
+                  sleep(5);
+                  return;
+                }
+                bothStarted.countDown();
+                try {
+                  bothStarted.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException(Thread.currentThread() == caller ? "caller" : "helper");
+              }));
+
+      assertEquals("caller", thrown.getMessage());
+      assertEquals(1, thrown.getSuppressed().length);
+      assertEquals("helper", thrown.getSuppressed()[0].getMessage());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Части по миллисекунде: оценка стоимости блока заведомо выше порога параллельной обработки.
+   */
+  private static void runSlowly(BlockScheduler scheduler, int blockCount, int blockSize, AtomicIntegerArray visits) {
+    scheduler.run(blockCount, blockSize, (firstBlock, count) -> {
+      for (int block = firstBlock; block < firstBlock + count; block++) {
+        visits.incrementAndGet(block);
+      }
+      sleep(1);
+    });
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.crypto.cipher.context;
+
+import com.crypto.serpent.FastSerpentCipher;
+import com.crypto.util.datatypes.Key;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedContainerTest {
+
+  @ParameterizedTest
+  @EnumSource(SymmetricCipherContext.EncryptionMode.class)
+  void testChunkedContainerRoundTrip(SymmetricCipherContext.EncryptionMode encryptionMode,
+                                     @TempDir Path directory) throws Exception {
+    Random random = new Random(61);
+    byte[] iv = new byte[16];
+    random.nextBytes(iv);
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(new byte[16]), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    context.setBlockSize(16);
+
+    int chunkSize = 16 * 1024;
+    byte[] original = new byte[10 * chunkSize + 37];
+    random.nextBytes(original);
+    Path source = directory.resolve("source");
+    Path container = directory.resolve("container");
+    Path decrypted = directory.resolve("decrypted");
+    Files.write(source, original);
+
+    AtomicLong progress = new AtomicLong();
+    context.encryptChunked(source.toString(), container.toString(), chunkSize,
+            total -> progress.accumulateAndGet(total, Math::max)).join();
+    assertEquals(original.length, progress.get());
+    context.decryptChunked(container.toString(), decrypted.toString()).join();
+    assertArrayEquals(original, Files.readAllBytes(decrypted));
+
+    // части читаются в любом порядке, не трогая предыдущих
+    try (ChunkedContainer reader = ChunkedContainer.open(context, container)) {
+      assertEquals(11, reader.getChunkCount());
+      assertEquals(original.length, reader.getLength());
+      assertArrayEquals(Arrays.copyOfRange(original, 10 * chunkSize, original.length), reader.readChunk(10));
+      assertArrayEquals(Arrays.copyOfRange(original, 3 * chunkSize, 4 * chunkSize), reader.readChunk(3));
+    }
+
+    SymmetricCipherContext otherMode = new SymmetricCipherContext(
+            new Key(new byte[16]),
+            (encryptionMode == SymmetricCipherContext.EncryptionMode.ECB)
+            ? SymmetricCipherContext.EncryptionMode.CBC : SymmetricCipherContext.EncryptionMode.ECB,
+            SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    otherMode.setBlockSize(16);
+    assertThrows(IllegalArgumentException.class, () -> ChunkedContainer.open(otherMode, container));
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = SymmetricCipherContext.EncryptionMode.class, names = {"CBC", "CTR"})
+  void testChunksOnBoundedPool(SymmetricCipherContext.EncryptionMode encryptionMode,
+                               @TempDir Path directory) throws Exception {
+    Random random = new Random(67);
+    byte[] iv = new byte[16];
+    random.nextBytes(iv);
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(new byte[16]), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    context.setBlockSize(16);
+    SymmetricCipherContext pooledContext = new SymmetricCipherContext(
+            new Key(new byte[16]), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    pooledContext.setBlockSize(16);
+
+    int chunkSize = 64 * 1024;
+    byte[] original = new byte[32 * chunkSize + 5];
+    random.nextBytes(original);
+    Path source = directory.resolve("source");
+    Path expected = directory.resolve("expected");
+    Path container = directory.resolve("container");
+    Path decrypted = directory.resolve("decrypted");
+    Files.write(source, original);
+    context.encryptChunked(source.toString(), expected.toString(), chunkSize, null).join();
+
+    // части раздаются на пул из двух потоков, а сами части обрабатываются без него; расшифровка
+    // и сама идёт на этом пуле
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      pooledContext.setExecutor(pool);
+      pooledContext.encryptChunked(source.toString(), container.toString(), chunkSize, null)
+              .get(30, TimeUnit.SECONDS);
+      pooledContext.decryptChunked(container.toString(), decrypted.toString(), pool, null)
+              .get(30, TimeUnit.SECONDS);
+    } finally {
+      pool.shutdownNow();
+    }
+    assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(container));
+    assertArrayEquals(original, Files.readAllBytes(decrypted));
+  }
+}
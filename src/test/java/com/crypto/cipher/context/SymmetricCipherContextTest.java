@@ -0,0 +1,503 @@
+package com.crypto.cipher.context;
+
+import com.crypto.serpent.FastSerpentCipher;
+import com.crypto.util.datatypes.Key;
+import com.crypto.util.datatypes.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymmetricCipherContextTest {
+
+  @ParameterizedTest
+  @EnumSource(value = SymmetricCipherContext.EncryptionMode.class, names = {"CBC", "CFB"})
+  void testChainedDecryptionAcrossChunks(SymmetricCipherContext.EncryptionMode encryptionMode) {
+    Random random = new Random(11);
+    byte[] keyBytes = new byte[32];
+    byte[] iv = new byte[16];
+    byte[] plaintext = new byte[700 * 16 + 5];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    random.nextBytes(plaintext);
+
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes),
+            encryptionMode,
+            SymmetricCipherContext.PaddingMode.PKCS7,
+            new FastSerpentCipher(),
+            iv
+    );
+
+    Message encryptedMessage = context.encrypt(new Message(plaintext, 16));
+    assertArrayEquals(plaintext, context.decrypt(encryptedMessage).getData());
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = SymmetricCipherContext.EncryptionMode.class, names = {"ECB", "CBC", "CTR", "RANDOM_DELTA"})
+  void testCallerSuppliedPoolMatchesDefault(SymmetricCipherContext.EncryptionMode encryptionMode) {
+    Random random = new Random(13);
+    byte[] keyBytes = new byte[16];
+    byte[] iv = new byte[16];
+    byte[] plaintext = new byte[1 << 20];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    random.nextBytes(plaintext);
+    plaintext[plaintext.length - 1] = (byte) 0xAA;
+
+    SymmetricCipherContext defaultContext = new SymmetricCipherContext(
+            new Key(keyBytes), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    SymmetricCipherContext pooledContext = new SymmetricCipherContext(
+            new Key(keyBytes), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      pooledContext.setExecutor(pool);
+      byte[] expected = defaultContext.encrypt(new Message(plaintext, 16)).getData();
+      Message encryptedMessage = pooledContext.encrypt(new Message(plaintext, 16));
+      assertArrayEquals(expected, encryptedMessage.getData());
+      assertArrayEquals(plaintext, pooledContext.decrypt(encryptedMessage).getData());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(SymmetricCipherContext.EncryptionMode.class)
+  void testFileStreamMatchesMessage(SymmetricCipherContext.EncryptionMode encryptionMode,
+                                    @TempDir Path directory) throws Exception {
+    Random random = new Random(19);
+    byte[] keyBytes = new byte[16];
+    byte[] iv = new byte[16];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    context.setBlockSize(16);
+
+    // ровно две части файла, затем неполная часть
+    for (int size : new int[]{2 * 1024 * 16, 2 * 1024 * 16 + 37}) {
+      byte[] original = new byte[size];
+      random.nextBytes(original);
+      original[size - 1] = (byte) 0xAA;
+      Path source = directory.resolve("source");
+      Path encrypted = directory.resolve("encrypted");
+      Path decrypted = directory.resolve("decrypted");
+      Files.write(source, original);
+
+      context.encrypt(source.toString(), encrypted.toString()).join();
+      context.decrypt(encrypted.toString(), decrypted.toString()).join();
+
+      assertArrayEquals(context.encrypt(new Message(original, 16)).getData(), Files.readAllBytes(encrypted));
+      assertArrayEquals(original, Files.readAllBytes(decrypted));
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(SymmetricCipherContext.EncryptionMode.class)
+  void testLargeFileMatchesMessage(SymmetricCipherContext.EncryptionMode encryptionMode,
+                                   @TempDir Path directory) throws Exception {
+    Random random = new Random(37);
+    byte[] keyBytes = new byte[16];
+    byte[] iv = new byte[16];
+    // больше порога отображения в память, с неполным последним блоком
+    byte[] original = new byte[(3 << 20) + 5];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    random.nextBytes(original);
+    original[original.length - 1] = (byte) 0xAA;
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes), encryptionMode, SymmetricCipherContext.PaddingMode.ANSI_X923, new FastSerpentCipher(), iv);
+    context.setBlockSize(16);
+
+    Path source = directory.resolve("source");
+    Path encrypted = directory.resolve("encrypted");
+    Path decrypted = directory.resolve("decrypted");
+    Files.write(source, original);
+    context.encrypt(source.toString(), encrypted.toString()).join();
+    context.decrypt(encrypted.toString(), decrypted.toString()).join();
+
+    assertArrayEquals(context.encrypt(new Message(original, 16)).getData(), Files.readAllBytes(encrypted));
+    assertArrayEquals(original, Files.readAllBytes(decrypted));
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = SymmetricCipherContext.EncryptionMode.class, names = {"CBC", "PCBC", "CFB", "OFB"})
+  void testPipelinedFileMatchesMessage(SymmetricCipherContext.EncryptionMode encryptionMode,
+                                       @TempDir Path directory) throws Exception {
+    Random random = new Random(41);
+    byte[] keyBytes = new byte[16];
+    byte[] iv = new byte[16];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    context.setBlockSize(16);
+    // три буфера по 64 КБ: конвейеру приходится ждать освобождения буферов
+    context.setPipelineMemoryBytes(3 * 64 * 1024);
+
+    // кратно буферу конвейера и с неполным последним блоком
+    for (int size : new int[]{8 * 64 * 1024, 600_003}) {
+      byte[] original = new byte[size];
+      random.nextBytes(original);
+      original[size - 1] = (byte) 0xAA;
+      Path source = directory.resolve("source");
+      Path encrypted = directory.resolve("encrypted");
+      Path decrypted = directory.resolve("decrypted");
+      Files.write(source, original);
+
+      PipelineStats encryption = context.encryptFile(source.toString(), encrypted.toString(),
+              new FileProgress(new CompletableFuture<>(), null));
+      PipelineStats decryption = context.decryptFile(encrypted.toString(), decrypted.toString(),
+              new FileProgress(new CompletableFuture<>(), null));
+
+      assertArrayEquals(context.encrypt(new Message(original, 16)).getData(), Files.readAllBytes(encrypted));
+      assertArrayEquals(original, Files.readAllBytes(decrypted));
+      assertEquals(size, encryption.getBytes());
+      assertEquals(Files.size(encrypted), decryption.getBytes());
+      assertTrue(decryption.getCipherBusyNanos() > 0);
+    }
+  }
+
+  /**
+   * Поток, конвейер и отображение в память — каждый способ сообщает о ходе обработки вплоть до
+   * размера исходного файла.
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {1000, 600_003, 3 * 1024 * 1024 + 5})
+  void testFileProgressOnExecutor(int size, @TempDir Path directory) throws Exception {
+    SymmetricCipherContext.EncryptionMode encryptionMode = (size > 1024 * 1024)
+                                                            ? SymmetricCipherContext.EncryptionMode.CTR
+                                                            : SymmetricCipherContext.EncryptionMode.CBC;
+    Random random = new Random(size);
+    byte[] iv = new byte[16];
+    random.nextBytes(iv);
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(new byte[16]), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    context.setBlockSize(16);
+
+    byte[] original = new byte[size];
+    random.nextBytes(original);
+    Path source = directory.resolve("source");
+    Path encrypted = directory.resolve("encrypted");
+    Path decrypted = directory.resolve("decrypted");
+    Files.write(source, original);
+
+    AtomicLong encryptedBytes = new AtomicLong();
+    AtomicLong decryptedBytes = new AtomicLong();
+    Executor executor = SymmetricCipherContext.virtualThreadExecutor();
+    context.encrypt(source.toString(), encrypted.toString(), executor,
+            bytes -> encryptedBytes.accumulateAndGet(bytes, Math::max)).join();
+    context.decrypt(encrypted.toString(), decrypted.toString(), executor,
+            bytes -> decryptedBytes.accumulateAndGet(bytes, Math::max)).join();
+
+    assertEquals(size, encryptedBytes.get());
+    assertEquals(Files.size(encrypted), decryptedBytes.get());
+    assertArrayEquals(original, Files.readAllBytes(decrypted));
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = SymmetricCipherContext.EncryptionMode.class, names = {"CBC", "CTR"})
+  void testDirectoryRoundTrip(SymmetricCipherContext.EncryptionMode encryptionMode,
+                              @TempDir Path directory) throws Exception {
+    Random random = new Random(53);
+    byte[] iv = new byte[16];
+    random.nextBytes(iv);
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(new byte[16]), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+    context.setBlockSize(16);
+
+    Path source = directory.resolve("source");
+    Path encrypted = directory.resolve("encrypted");
+    Path decrypted = directory.resolve("decrypted");
+    Files.createDirectories(source.resolve("a/b"));
+    Files.createDirectories(source.resolve("empty"));
+    byte[] same = new byte[100];
+    random.nextBytes(same);
+    same[99] = (byte) 0xAA;
+    Files.write(source.resolve("same1"), same);
+    Files.write(source.resolve("a/same2"), same);
+    long bytes = 200;
+    // мелкие файлы, файл для конвейера и файл для отображения в память
+    for (int size : new int[]{1, 15, 16, 4097, 300_000, 2 * 1024 * 1024 + 3}) {
+      byte[] data = new byte[size];
+      random.nextBytes(data);
+      data[size - 1] = (byte) 0xAA;
+      Files.write(source.resolve("a/b/file" + size), data);
+      bytes += size;
+    }
+
+    DirectorySummary encryption = context.encryptDirectory(source, encrypted).join();
+    assertEquals(8, encryption.getFiles());
+    assertEquals(bytes, encryption.getBytes());
+    assertTrue(encryption.getFailures().isEmpty());
+    assertTrue(Files.isDirectory(encrypted.resolve("empty")));
+    // у каждого файла свой IV
+    assertFalse(Arrays.equals(Files.readAllBytes(encrypted.resolve("same1")),
+            Files.readAllBytes(encrypted.resolve("a/same2"))));
+
+    // файл, который нельзя расшифровать, не мешает остальным
+    Files.write(encrypted.resolve("broken"), new byte[17]);
+    AtomicLong progress = new AtomicLong();
+    DirectorySummary decryption = context.decryptDirectory(encrypted, decrypted, ForkJoinPool.commonPool(),
+            total -> progress.accumulateAndGet(total, Math::max)).join();
+    assertEquals(8, decryption.getFiles());
+    assertEquals(Set.of(Path.of("broken")), decryption.getFailures().keySet());
+    assertEquals(decryption.getBytes(), progress.get());
+
+    try (Stream<Path> files = Files.walk(source)) {
+      for (Path file : files.filter(Files::isRegularFile).toList()) {
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(decrypted.resolve(source.relativize(file))),
+                file.toString());
+      }
+    }
+  }
+
+  @Test
+  void testFileCancellationStopsProcessing(@TempDir Path directory) throws Exception {
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(new byte[16]), SymmetricCipherContext.EncryptionMode.CBC, SymmetricCipherContext.PaddingMode.PKCS7,
+            new FastSerpentCipher(), new byte[16]);
+    context.setBlockSize(16);
+    Path source = directory.resolve("source");
+    Files.write(source, new byte[100 * 1024]);
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch cancelled = new CountDownLatch(1);
+    AtomicInteger reports = new AtomicInteger();
+    CompletableFuture<Void> future = context.encrypt(source.toString(), directory.resolve("encrypted").toString(),
+            SymmetricCipherContext.virtualThreadExecutor(), bytes -> {
+              reports.incrementAndGet();
+              started.countDown();
+              try {
+                cancelled.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertTrue(future.cancel(true));
+    cancelled.countDown();
+    assertThrows(CancellationException.class, future::join);
+    // обработка замечает отмену на следующей части и больше не сообщает о ходе
+    Thread.sleep(200);
+    assertEquals(1, reports.get());
+  }
+
+  @ParameterizedTest
+  @EnumSource(SymmetricCipherContext.EncryptionMode.class)
+  void testSessionMatchesMessage(SymmetricCipherContext.EncryptionMode encryptionMode) {
+    Random random = new Random(23);
+    byte[] keyBytes = new byte[16];
+    byte[] iv = new byte[16];
+    byte[] plaintext = new byte[3000];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    random.nextBytes(plaintext);
+    plaintext[plaintext.length - 1] = (byte) 0xAA;
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes), encryptionMode, SymmetricCipherContext.PaddingMode.ANSI_X923, new FastSerpentCipher(), iv);
+
+    byte[] expected = context.encrypt(new Message(plaintext, 16)).getData();
+    CipherSession encryption = context.encryptionSession();
+    // дважды, чтобы проверить, что после doFinal сессия начинает поток заново
+    for (int round = 0; round < 2; round++) {
+      byte[] encrypted = new byte[encryption.getOutputSize(plaintext.length)];
+      int written = 0;
+      for (int offset = 0; offset < plaintext.length; ) {
+        int length = Math.min(1 + random.nextInt(100), plaintext.length - offset);
+        written += encryption.update(plaintext, offset, length, encrypted, written);
+        offset += length;
+      }
+      written += encryption.doFinal(encrypted, written);
+      assertArrayEquals(expected, Arrays.copyOf(encrypted, written));
+    }
+
+    // расшифровка на месте, блоками, не совпадающими с границами блоков шифра
+    byte[] buffer = expected.clone();
+    CipherSession decryption = context.decryptionSession();
+    int written = 0;
+    for (int offset = 0; offset < buffer.length; offset += 20) {
+      written += decryption.update(buffer, offset, Math.min(20, buffer.length - offset), buffer, written);
+    }
+    written += decryption.doFinal(buffer, written);
+    assertArrayEquals(plaintext, Arrays.copyOf(buffer, written));
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideEncryptionAndPaddingModes")
+  void testCipherStreamsRoundTrip(SymmetricCipherContext.EncryptionMode encryptionMode,
+                                  SymmetricCipherContext.PaddingMode paddingMode) throws Exception {
+    Random random = new Random(29);
+    byte[] keyBytes = new byte[16];
+    byte[] iv = new byte[16];
+    byte[] plaintext = new byte[40_000];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    random.nextBytes(plaintext);
+    plaintext[plaintext.length - 1] = (byte) 0xAA;
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes), encryptionMode, paddingMode, new FastSerpentCipher(), iv);
+
+    ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+    try (CipherOutputStream outputStream = new CipherOutputStream(encrypted, context.encryptionSession())) {
+      outputStream.write(plaintext[0]);
+      outputStream.write(plaintext, 1, 99);
+      outputStream.write(plaintext, 100, plaintext.length - 100);
+    }
+    Message expected = context.encrypt(new Message(plaintext, 16));
+    if (paddingMode != SymmetricCipherContext.PaddingMode.ISO_10126) {
+      assertArrayEquals(expected.getData(), encrypted.toByteArray());
+    }
+
+    ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+    try (CipherInputStream inputStream = new CipherInputStream(
+            new ByteArrayInputStream(encrypted.toByteArray()), context.decryptionSession())) {
+      decrypted.write(inputStream.read());
+      byte[] small = new byte[7];
+      int count = inputStream.read(small);
+      decrypted.write(small, 0, count);
+      decrypted.write(inputStream.readAllBytes());
+    }
+    assertArrayEquals(plaintext, decrypted.toByteArray());
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = SymmetricCipherContext.EncryptionMode.class, names = {"CBC", "OFB", "CTR"})
+  void testCipherChannelsWithDirectBuffers(SymmetricCipherContext.EncryptionMode encryptionMode,
+                                           @TempDir Path directory) throws Exception {
+    Random random = new Random(31);
+    byte[] keyBytes = new byte[16];
+    byte[] iv = new byte[16];
+    byte[] plaintext = new byte[150_000];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    random.nextBytes(plaintext);
+    plaintext[plaintext.length - 1] = (byte) 0xAA;
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes), encryptionMode, SymmetricCipherContext.PaddingMode.PKCS7, new FastSerpentCipher(), iv);
+
+    Path source = directory.resolve("source");
+    Path encrypted = directory.resolve("encrypted");
+    Files.write(source, Arrays.copyOfRange(plaintext, 1000, plaintext.length));
+    ByteBuffer head = ByteBuffer.allocateDirect(1000).put(plaintext, 0, 1000).flip();
+    try (FileChannel input = FileChannel.open(source);
+         CipherWritableByteChannel output = new CipherWritableByteChannel(
+                 FileChannel.open(encrypted, StandardOpenOption.CREATE, StandardOpenOption.WRITE),
+                 context.encryptionSession())) {
+      output.write(new ByteBuffer[]{head, ByteBuffer.allocate(0)});
+      input.transferTo(0, input.size(), output);
+    }
+    assertArrayEquals(context.encrypt(new Message(plaintext, 16)).getData(), Files.readAllBytes(encrypted));
+
+    ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+    try (CipherReadableByteChannel input = new CipherReadableByteChannel(
+            FileChannel.open(encrypted), context.decryptionSession())) {
+      ByteBuffer direct = ByteBuffer.allocateDirect(10_000);
+      ByteBuffer heap = ByteBuffer.allocate(10_000);
+      for (int i = 0; ; i++) {
+        ByteBuffer buffer = (i % 2 == 0) ? direct.clear() : heap.clear();
+        if (input.read(buffer) < 0) {
+          break;
+        }
+        buffer.flip();
+        byte[] chunk = new byte[buffer.remaining()];
+        buffer.get(chunk);
+        decrypted.write(chunk);
+      }
+    }
+    assertArrayEquals(plaintext, decrypted.toByteArray());
+  }
+
+  @Test
+  void testOfbFileKeystreamMatchesMessage(@TempDir Path directory) throws Exception {
+    byte[] iv = new byte[16];
+    new Random(17).nextBytes(iv);
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(new byte[16]),
+            SymmetricCipherContext.EncryptionMode.OFB,
+            SymmetricCipherContext.PaddingMode.PKCS7,
+            new FastSerpentCipher(),
+            iv
+    );
+    context.setBlockSize(16);
+
+    Path source = Path.of("src/test/resources/desTestBTree.h");
+    Path encrypted = directory.resolve("encrypted");
+    Path decrypted = directory.resolve("decrypted");
+    context.encrypt(source.toString(), encrypted.toString()).join();
+    context.decrypt(encrypted.toString(), decrypted.toString()).join();
+
+    byte[] original = Files.readAllBytes(source);
+    assertArrayEquals(context.encrypt(new Message(original, 16)).getData(), Files.readAllBytes(encrypted));
+    assertArrayEquals(original, Files.readAllBytes(decrypted));
+  }
+
+  /**
+   * Фоновая гамма включается только на многоядерных машинах, поэтому генератор проверяется
+   * напрямую: куски разной длины, кольцо много меньше данных.
+   */
+  @Test
+  void testOfbKeystreamGeneratorMatchesMode() {
+    Random random = new Random(23);
+    byte[] keyBytes = new byte[16];
+    byte[] iv = new byte[16];
+    byte[] original = new byte[100 * 1024];
+    random.nextBytes(keyBytes);
+    random.nextBytes(iv);
+    random.nextBytes(original);
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes), SymmetricCipherContext.EncryptionMode.OFB, SymmetricCipherContext.PaddingMode.PKCS7,
+            new FastSerpentCipher(), iv);
+    context.setBlockSize(16);
+
+    byte[] expected = original.clone();
+    context.processWithMode(expected, 0, expected.length, SymmetricCipherContext.Operation.ENCRYPT,
+            context.initialRegister());
+
+    byte[] actual = original.clone();
+    try (OfbKeystreamGenerator keyStream = new OfbKeystreamGenerator(context.getSymmetricCipher(), iv, 16, 4096)) {
+      for (int offset = 0; offset < actual.length; ) {
+        int length = Math.min(1 + random.nextInt(5000), actual.length - offset);
+        keyStream.xor(actual, offset, length);
+        offset += length;
+      }
+    }
+    assertArrayEquals(expected, actual);
+  }
+
+  private static Stream<Arguments> provideEncryptionAndPaddingModes() {
+    return Stream.of(
+                    SymmetricCipherContext.EncryptionMode.values())
+            .flatMap(encryptionMode ->
+                    Stream.of(SymmetricCipherContext.PaddingMode.values())
+                            .map(paddingMode -> Arguments.of(encryptionMode, paddingMode))
+            );
+  }
+}
@@ -1,23 +1,35 @@
 package com.crypto.cipher.serpent;
 
+import com.crypto.cipher.SymmetricCipher;
 import com.crypto.cipher.context.SymmetricCipherContext;
+import com.crypto.serpent.FastSerpentCipher;
 import com.crypto.serpent.SerpentCipher;
+import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
 import com.crypto.util.datatypes.Message;
+import org.junit.jupiter.api.Named;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import static com.crypto.cipher.CipherCrossCheck.assertMatchesReference;
 import static org.junit.jupiter.api.Assertions.*;
 
 class SerpentTest {
 
+  private static final HexFormat hex = HexFormat.of();
+
   @Test
   void testEncryptMessage() {
 
@@ -53,6 +65,96 @@ class SerpentTest {
     assertArrayEquals(expectedResult, encryptedMessage.getData());
   }
 
+  @Test
+  void testFastSerpentEncryptMessage() {
+    byte[] messageBytes = new byte[16];
+    messageBytes[15] = 0x01;
+
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(new byte[32]),
+            SymmetricCipherContext.EncryptionMode.ECB,
+            SymmetricCipherContext.PaddingMode.ANSI_X923,
+            new FastSerpentCipher(),
+            new byte[16]
+    );
+
+    //AD86DE83231C3203A86AE33B721EAA9F according to BC implementation
+    byte[] expectedResult = new byte[]{(byte) 0xAD, (byte) 0x86, (byte) 0xDE, (byte) 0x83, (byte) 0x23, (byte) 0x1C, (byte) 0x32, (byte) 0x03,
+            (byte) 0xA8, (byte) 0x6A, (byte) 0xE3, (byte) 0x3B, (byte) 0x72, (byte) 0x1E, (byte) 0xAA, (byte) 0x9F};
+
+    Message encryptedMessage = context.encrypt(new Message(messageBytes, 16));
+
+    assertArrayEquals(expectedResult, encryptedMessage.getData());
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {16, 24, 32})
+  void testFastSerpentMatchesSerpentCipher(int keySize) {
+    assertMatchesReference(SerpentCipher::new, FastSerpentCipher::new, keySize, 32, keySize);
+  }
+
+  /**
+   * Векторы NESSIE для Serpent: Set 1, vector 0 для ключей 128, 192 и 256 бит и Set 2, vector 0
+   * для 128-битного ключа.
+   */
+  @ParameterizedTest
+  @MethodSource("provideKnownAnswers")
+  void testKnownAnswers(Supplier<SymmetricCipher> cipherFactory, String keyHex, String plaintextHex,
+                        String ciphertextHex) {
+    SymmetricCipher cipher = cipherFactory.get();
+    cipher.setRoundKeys(new Key(hex.parseHex(keyHex)));
+
+    byte[] encrypted = cipher.encryptBlock(new Block(hex.parseHex(plaintextHex))).getData();
+    assertEquals(ciphertextHex, hex.formatHex(encrypted));
+    assertArrayEquals(hex.parseHex(plaintextHex), cipher.decryptBlock(new Block(encrypted)).getData());
+  }
+
+  private static Stream<Arguments> provideKnownAnswers() {
+    Stream<String[]> vectors = Stream.of(
+            new String[]{"80000000000000000000000000000000",
+                    "00000000000000000000000000000000", "264e5481eff42a4606abda06c0bfda3d"},
+            new String[]{"800000000000000000000000000000000000000000000000",
+                    "00000000000000000000000000000000", "9e274ead9b737bb21efcfca548602689"},
+            new String[]{"8000000000000000000000000000000000000000000000000000000000000000",
+                    "00000000000000000000000000000000", "a223aa1288463c0e2be38ebd825616c0"},
+            new String[]{"00000000000000000000000000000000",
+                    "80000000000000000000000000000000", "a3b35de7c358ddd82644678c64b8bcbb"});
+    return vectors.flatMap(vector -> Stream.of(
+                    Named.<Supplier<SymmetricCipher>>of("SerpentCipher", SerpentCipher::new),
+                    Named.<Supplier<SymmetricCipher>>of("FastSerpentCipher", FastSerpentCipher::new))
+            .map(factory -> Arguments.of(factory, vector[0], vector[1], vector[2])));
+  }
+
+  @Test
+  void testInPlaceBlocksMatchBlockApi() {
+    Random random = new Random(42);
+    byte[] keyBytes = new byte[32];
+    byte[] data = new byte[5 * 16 + 3];
+    random.nextBytes(keyBytes);
+    random.nextBytes(data);
+
+    SerpentCipher serpentCipher = new SerpentCipher();
+    FastSerpentCipher fastSerpentCipher = new FastSerpentCipher();
+    serpentCipher.setRoundKeys(new Key(keyBytes));
+    fastSerpentCipher.setRoundKeys(new Key(keyBytes));
+
+    byte[] expected = data.clone();
+    for (int i = 0; i < 5; i++) {
+      byte[] block = Arrays.copyOfRange(data, 3 + i * 16, 3 + (i + 1) * 16);
+      System.arraycopy(serpentCipher.encryptBlock(new Block(block)).getData(), 0, expected, 3 + i * 16, 16);
+    }
+
+    byte[] viaDefault = data.clone();
+    serpentCipher.encryptBlocks(viaDefault, 3, viaDefault, 3, 5);
+    byte[] viaFast = data.clone();
+    fastSerpentCipher.encryptBlocks(viaFast, 3, viaFast, 3, 5);
+    assertArrayEquals(expected, viaDefault);
+    assertArrayEquals(expected, viaFast);
+
+    fastSerpentCipher.decryptBlocks(viaFast, 3, viaFast, 3, 5);
+    assertArrayEquals(data, viaFast);
+  }
+
   @ParameterizedTest
   @MethodSource("provideEncryptionAndPaddingModesWithoutZeros")
   void testEncryptDecryptMessage(
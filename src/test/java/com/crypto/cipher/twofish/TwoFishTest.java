@@ -3,19 +3,24 @@ package com.crypto.cipher.twofish;
 import com.crypto.cipher.context.SymmetricCipherContext;
 import com.crypto.serpent.SerpentCipher;
 import com.crypto.twofish.TwoFishCipher;
+import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
 import com.crypto.util.datatypes.Message;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HexFormat;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
+import static com.crypto.cipher.CipherCrossCheck.assertMatchesReference;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
@@ -52,6 +57,91 @@ class TwoFishTest {
     assertArrayEquals(expectedResult, encryptedMessage.getData());
   }
 
+  /**
+   * Векторы из описания Twofish (ecb_tbl.txt, ecb_ival.txt): ключ с ненулевыми байтами проверяет
+   * порядок байтов слов ключа в h, которого нулевой ключ не замечает.
+   */
+  @ParameterizedTest
+  @MethodSource("provideKnownAnswers")
+  void testKnownAnswers(TwoFishCipher.KeyingMode keyingMode, String keyHex, String plaintextHex,
+                        String ciphertextHex) {
+    TwoFishCipher cipher = new TwoFishCipher(keyingMode);
+    cipher.setRoundKeys(new Key(hex.parseHex(keyHex)));
+
+    byte[] encrypted = cipher.encryptBlock(new Block(hex.parseHex(plaintextHex))).getData();
+    assertArrayEquals(hex.parseHex(ciphertextHex), encrypted);
+    assertArrayEquals(hex.parseHex(plaintextHex), cipher.decryptBlock(new Block(encrypted)).getData());
+  }
+
+  private static Stream<Arguments> provideKnownAnswers() {
+    Stream<String[]> vectors = Stream.of(
+            new String[]{"00000000000000000000000000000000",
+                    "00000000000000000000000000000000", "9F589F5CF6122C32B6BFEC2F2AE8C35A"},
+            new String[]{"9F589F5CF6122C32B6BFEC2F2AE8C35A",
+                    "D491DB16E7B1C39E86CB086B789F5419", "019F9809DE1711858FAAC3A3BA20FBC3"},
+            new String[]{"0123456789ABCDEFFEDCBA98765432100011223344556677",
+                    "00000000000000000000000000000000", "CFD1D2E5A9BE9CDF501F13B892BD2248"},
+            new String[]{"0123456789ABCDEFFEDCBA987654321000112233445566778899AABBCCDDEEFF",
+                    "00000000000000000000000000000000", "37527BE0052334B89F0CFCCAE87CFA20"});
+    return vectors.flatMap(vector -> Stream.of(TwoFishCipher.KeyingMode.values())
+            .map(keyingMode -> Arguments.of(keyingMode, vector[0], vector[1], vector[2])));
+  }
+
+  @Test
+  void testInstancesWithDifferentKeysAreIndependent() {
+    Random random = new Random(11);
+    byte[] firstKey = new byte[16];
+    byte[] secondKey = new byte[32];
+    random.nextBytes(firstKey);
+    random.nextBytes(secondKey);
+    byte[] blockBytes = new byte[16];
+    random.nextBytes(blockBytes);
+
+    TwoFishCipher reference = new TwoFishCipher();
+    reference.setRoundKeys(new Key(firstKey));
+    byte[] expected = reference.encryptBlock(new Block(blockBytes)).getData();
+
+    TwoFishCipher first = new TwoFishCipher();
+    TwoFishCipher second = new TwoFishCipher();
+    first.setRoundKeys(new Key(firstKey));
+    second.setRoundKeys(new Key(secondKey));
+
+    assertArrayEquals(expected, first.encryptBlock(new Block(blockBytes)).getData());
+    assertArrayEquals(blockBytes, first.decryptBlock(new Block(expected)).getData());
+  }
+
+  @Test
+  void testInPlaceBlocksMatchBlockApi() {
+    Random random = new Random(5);
+    byte[] keyBytes = new byte[24];
+    byte[] data = new byte[4 * 16 + 7];
+    random.nextBytes(keyBytes);
+    random.nextBytes(data);
+
+    TwoFishCipher cipher = new TwoFishCipher();
+    cipher.setRoundKeys(new Key(keyBytes));
+
+    byte[] expected = data.clone();
+    for (int i = 0; i < 4; i++) {
+      byte[] block = Arrays.copyOfRange(data, 7 + i * 16, 7 + (i + 1) * 16);
+      System.arraycopy(cipher.encryptBlock(new Block(block)).getData(), 0, expected, 7 + i * 16, 16);
+    }
+
+    byte[] actual = data.clone();
+    cipher.encryptBlocks(actual, 7, actual, 7, 4);
+    assertArrayEquals(expected, actual);
+
+    cipher.decryptBlocks(actual, 7, actual, 7, 4);
+    assertArrayEquals(data, actual);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {16, 24, 32})
+  void testCompactKeyingMatchesFullKeying(int keySize) {
+    assertMatchesReference(() -> new TwoFishCipher(TwoFishCipher.KeyingMode.FULL),
+            () -> new TwoFishCipher(TwoFishCipher.KeyingMode.COMPACT), keySize, 16, keySize);
+  }
+
   private static Stream<Arguments> provideEncryptionAndPaddingModesWithoutZeros() {
     return Stream.of(
                     SymmetricCipherContext.EncryptionMode.values())
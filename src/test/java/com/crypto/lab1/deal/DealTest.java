@@ -3,6 +3,7 @@ package com.crypto.lab1.deal;
 import com.crypto.cipher.context.SymmetricCipherContext;
 import com.crypto.deal.DealCipher;
 import com.crypto.des.DesCipher;
+import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
 import com.crypto.util.datatypes.Message;
 import org.junit.jupiter.api.Test;
@@ -12,13 +13,18 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HexFormat;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class DealTest {
+
+  private static final HexFormat hex = HexFormat.of();
+
   @Test
   void testDecryptMessage() {
     Key key = new Key("16 byte long key");
@@ -39,6 +45,31 @@ public class DealTest {
     assertArrayEquals(message.getData(), decryptedMessage.getData());
   }
 
+  /**
+   * Векторы получены на исходной реализации DEAL, до перевода на {@code LongFeistelNetwork} и
+   * общие расписания DES.
+   */
+  @ParameterizedTest
+  @MethodSource("provideKnownAnswers")
+  void testKnownAnswers(String keyHex, String plaintextHex, String ciphertextHex) {
+    DealCipher cipher = new DealCipher();
+    cipher.setRoundKeys(new Key(hex.parseHex(keyHex)));
+
+    byte[] encrypted = cipher.encryptBlock(new Block(hex.parseHex(plaintextHex))).getData();
+    assertEquals(ciphertextHex, hex.formatHex(encrypted));
+    assertArrayEquals(hex.parseHex(plaintextHex), cipher.decryptBlock(new Block(encrypted)).getData());
+  }
+
+  private static Stream<Arguments> provideKnownAnswers() {
+    return Stream.of(
+            Arguments.of("0123456789abcdeffedcba9876543210",
+                    "00112233445566778899aabbccddeeff", "2bf8c5a3ad6d159c189d7815d8b5730d"),
+            Arguments.of("0123456789abcdeffedcba98765432100011223344556677",
+                    "000102030405060708090a0b0c0d0e0f", "4078c9c1eb7f4eb3be124e0fd829d015"),
+            Arguments.of("0123456789abcdeffedcba987654321000112233445566778899aabbccddeeff",
+                    "ffeeddccbbaa99887766554433221100", "606f92edea91a3597e86ba8db9c05794"));
+  }
+
   @ParameterizedTest
   @MethodSource("provideEncryptionAndPaddingModes")
   void testFileEncryptionAndDecryption(
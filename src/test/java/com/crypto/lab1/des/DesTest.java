@@ -1,23 +1,54 @@
 package com.crypto.lab1.des;
 
+import com.crypto.cipher.SymmetricCipher;
 import com.crypto.cipher.context.SymmetricCipherContext;
 import com.crypto.des.DesCipher;
+import com.crypto.des.FastDesCipher;
+import com.crypto.des.config.DesConfiguration;
+import com.crypto.util.BitPermutor;
+import com.crypto.util.CompiledPermutation;
+import com.crypto.util.datatypes.Block;
 import com.crypto.util.datatypes.Key;
 import com.crypto.util.datatypes.Message;
+import org.junit.jupiter.api.Named;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import static com.crypto.cipher.CipherCrossCheck.assertMatchesReference;
 import static org.junit.jupiter.api.Assertions.*;
 
 class DesTest {
 
+  private static final HexFormat hex = HexFormat.of();
+
+  @Test
+  void testMessageBlocksAreViewsOverBuffer() {
+    byte[] data = "twenty bytes of text".getBytes();
+    Message message = new Message(data, 8);
+
+    assertSame(data, message.getData());
+    assertEquals(3, message.getBlockCount());
+    assertEquals(4, message.blockView(2).remaining());
+    assertEquals(data[16], message.blockView(2).get(0));
+    assertArrayEquals("of text".getBytes(), new Message(data, 13, 7, 8).getData());
+
+    Block[] blocks = message.getBlocks();
+    assertArrayEquals(data, new Message(blocks, 8).getData());
+  }
+
   @Test
   void testDecryptMessage() {
     byte[] keyBytes = new byte[]{
@@ -82,6 +113,177 @@ class DesTest {
             "Encrypted block does not match expected result");
   }
 
+  @Test
+  void testFastDesEncryptMessage() {
+    Key key = new Key(new byte[]{
+            (byte) 0x11, (byte) 0x11, (byte) 0x11, (byte) 0x11,
+            (byte) 0x11, (byte) 0x11, (byte) 0x11, (byte) 0x11
+    });
+
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            key,
+            SymmetricCipherContext.EncryptionMode.ECB,
+            SymmetricCipherContext.PaddingMode.PKCS7,
+            new FastDesCipher(),
+            null
+    );
+
+    Message encryptedMessage = context.encrypt(new Message(new byte[8], 8));
+
+    byte[] expectedEncryptedData = new byte[]{
+            (byte) 0x82, (byte) 0xE1, (byte) 0x36, (byte) 0x65,
+            (byte) 0xB4, (byte) 0x62, (byte) 0x4D, (byte) 0xF5
+    };
+
+    assertArrayEquals(expectedEncryptedData, encryptedMessage.getData(),
+            "Encrypted block does not match expected result");
+  }
+
+  @Test
+  void testFastDesMatchesDesCipher() {
+    assertMatchesReference(DesCipher::new, FastDesCipher::new, 8, 64, 42);
+  }
+
+  /**
+   * Опубликованные векторы: вектор NBS SP 500-20 (ключ 0101010101010101) и оба примера из
+   * «The DES Algorithm Illustrated» Дж. Орлина Граббе.
+   */
+  @ParameterizedTest
+  @MethodSource("provideKnownAnswers")
+  void testKnownAnswers(Supplier<SymmetricCipher> cipherFactory, String keyHex, String plaintextHex,
+                        String ciphertextHex) {
+    SymmetricCipher cipher = cipherFactory.get();
+    cipher.setRoundKeys(new Key(hex.parseHex(keyHex)));
+
+    byte[] encrypted = cipher.encryptBlock(new Block(hex.parseHex(plaintextHex))).getData();
+    assertEquals(ciphertextHex, hex.formatHex(encrypted));
+    assertArrayEquals(hex.parseHex(plaintextHex), cipher.decryptBlock(new Block(encrypted)).getData());
+  }
+
+  private static Stream<Arguments> provideKnownAnswers() {
+    Stream<String[]> vectors = Stream.of(
+            new String[]{"0e329232ea6d0d73", "8787878787878787", "0000000000000000"},
+            new String[]{"0101010101010101", "95f8a5e5dd31d900", "8000000000000000"},
+            new String[]{"133457799bbcdff1", "0123456789abcdef", "85e813540f0ab405"});
+    return vectors.flatMap(vector -> Stream.of(
+                    Named.<Supplier<SymmetricCipher>>of("DesCipher", DesCipher::new),
+                    Named.<Supplier<SymmetricCipher>>of("FastDesCipher", FastDesCipher::new))
+            .map(factory -> Arguments.of(factory, vector[0], vector[1], vector[2])));
+  }
+
+  @Test
+  void testFastDesBlocksMatchBlockApi() {
+    Random random = new Random(7);
+    byte[] keyBytes = new byte[8];
+    byte[] data = new byte[6 * 8 + 5];
+    random.nextBytes(keyBytes);
+    random.nextBytes(data);
+
+    DesCipher desCipher = new DesCipher();
+    FastDesCipher fastDesCipher = new FastDesCipher();
+    desCipher.setRoundKeys(new Key(keyBytes));
+    fastDesCipher.setRoundKeys(new Key(keyBytes));
+
+    byte[] expected = data.clone();
+    for (int i = 0; i < 6; i++) {
+      byte[] block = Arrays.copyOfRange(data, 5 + i * 8, 5 + (i + 1) * 8);
+      System.arraycopy(desCipher.encryptBlock(new Block(block)).getData(), 0, expected, 5 + i * 8, 8);
+    }
+
+    byte[] actual = new byte[data.length];
+    fastDesCipher.encryptBlocks(data, 5, actual, 5, 6);
+    assertArrayEquals(Arrays.copyOfRange(expected, 5, data.length), Arrays.copyOfRange(actual, 5, data.length));
+
+    fastDesCipher.decryptBlocks(actual, 5, actual, 5, 6);
+    assertArrayEquals(Arrays.copyOfRange(data, 5, data.length), Arrays.copyOfRange(actual, 5, data.length));
+  }
+
+  @Test
+  void testCtrUsesNonceAndWrappingCounter() {
+    byte[] keyBytes = {0x13, 0x34, 0x57, 0x79, (byte) 0x9B, (byte) 0xBC, (byte) 0xDF, (byte) 0xF1};
+    byte[] iv = {1, 2, 3, 4, 5, 6, (byte) 0xFF, (byte) 0xF0};
+    byte[] plaintext = new byte[600 * 8];
+    new Random(3).nextBytes(plaintext);
+    plaintext[plaintext.length - 1] = (byte) 0xAA; // not mistaken for padding
+
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes),
+            SymmetricCipherContext.EncryptionMode.CTR,
+            SymmetricCipherContext.PaddingMode.PKCS7,
+            new FastDesCipher(),
+            iv
+    );
+    context.setCounterSize(2);
+    byte[] ciphertext = context.encrypt(new Message(plaintext, 8)).getData();
+
+    FastDesCipher desCipher = new FastDesCipher();
+    desCipher.setRoundKeys(new Key(keyBytes));
+    for (int i = 0; i < 600; i++) {
+      byte[] counterBlock = iv.clone();
+      int counter = (0xFFF0 + i) & 0xFFFF;
+      counterBlock[6] = (byte) (counter >>> 8);
+      counterBlock[7] = (byte) counter;
+      byte[] keyStream = desCipher.encryptBlock(new Block(counterBlock)).getData();
+      for (int j = 0; j < 8; j++) {
+        assertEquals((byte) (plaintext[i * 8 + j] ^ keyStream[j]), ciphertext[i * 8 + j]);
+      }
+    }
+    assertArrayEquals(plaintext, context.decrypt(new Message(ciphertext, 8)).getData());
+  }
+
+  @Test
+  void testRandomDeltaOffsetsWrapModuloBlockWidth() {
+    byte[] keyBytes = {0x13, 0x34, 0x57, 0x79, (byte) 0x9B, (byte) 0xBC, (byte) 0xDF, (byte) 0xF1};
+    byte[] iv = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, (byte) 0xC3, 0x5A, 0x01, (byte) 0xFE};
+    byte[] plaintext = new byte[600 * 8];
+    new Random(5).nextBytes(plaintext);
+    plaintext[plaintext.length - 1] = (byte) 0xAA; // not mistaken for padding
+
+    SymmetricCipherContext context = new SymmetricCipherContext(
+            new Key(keyBytes),
+            SymmetricCipherContext.EncryptionMode.RANDOM_DELTA,
+            SymmetricCipherContext.PaddingMode.PKCS7,
+            new FastDesCipher(),
+            iv
+    );
+    byte[] ciphertext = context.encrypt(new Message(plaintext, 8)).getData();
+
+    FastDesCipher desCipher = new FastDesCipher();
+    desCipher.setRoundKeys(new Key(keyBytes));
+    BigInteger modulus = BigInteger.ONE.shiftLeft(64);
+    BigInteger delta = new BigInteger(1, Arrays.copyOfRange(iv, 4, 8));
+    for (int i = 0; i < 600; i++) {
+      long offset = new BigInteger(1, iv).add(delta.multiply(BigInteger.valueOf(i))).mod(modulus).longValue();
+      long block = ByteBuffer.wrap(plaintext, i * 8, 8).getLong() ^ offset;
+      assertEquals(desCipher.encrypt(block), ByteBuffer.wrap(ciphertext, i * 8, 8).getLong());
+    }
+    assertArrayEquals(plaintext, context.decrypt(new Message(ciphertext, 8)).getData());
+  }
+
+  @Test
+  void testCompiledPermutationsMatchReference() {
+    Random random = new Random(7);
+    int[][] tables = {DesConfiguration.IP, DesConfiguration.FP, DesConfiguration.E,
+            DesConfiguration.P, DesConfiguration.PC1, DesConfiguration.PC2};
+    CompiledPermutation[] compiled = {DesConfiguration.COMPILED_IP, DesConfiguration.COMPILED_FP,
+            DesConfiguration.COMPILED_E, DesConfiguration.COMPILED_P, DesConfiguration.COMPILED_PC1,
+            DesConfiguration.COMPILED_PC2};
+
+    for (int t = 0; t < tables.length; t++) {
+      for (int i = 0; i < 32; i++) {
+        byte[] input = new byte[compiled[t].getInputBits() / 8];
+        random.nextBytes(input);
+        byte[] expected = BitPermutor.permuteBits(
+                input,
+                tables[t],
+                BitPermutor.BitOrder.MostSignificantToLeastSignificant,
+                BitPermutor.StartingBitIndex.ONE
+        );
+        assertArrayEquals(expected, compiled[t].permute(input));
+      }
+    }
+  }
+
   @Test
   void testEncryptAndDecryptMessageOnce() {
     String messageString = "Hello, World!";
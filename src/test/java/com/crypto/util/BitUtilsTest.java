@@ -0,0 +1,310 @@
+package com.crypto.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BitUtilsTest {
+
+  private static final Random random = new Random(42);
+
+  /**
+   * Длины массивов по обе стороны границы быстрого пути (не больше 8 байт) и срезы: весь массив,
+   * один бит, срез внутри массива и срез у младшего края.
+   */
+  static Stream<Arguments> provideSlices() {
+    List<Arguments> slices = new ArrayList<>();
+    for (int length : new int[]{1, 4, 8, 9}) {
+      int totalBits = length * 8;
+      slices.add(Arguments.of(length, 0, totalBits));
+      slices.add(Arguments.of(length, 0, 1));
+      slices.add(Arguments.of(length, totalBits - 1, 1));
+      if (totalBits > 4) {
+        slices.add(Arguments.of(length, 3, totalBits - 4));
+        slices.add(Arguments.of(length, 1, totalBits - 3));
+      }
+    }
+    return slices.stream();
+  }
+
+  private static int[] boundaryShifts(int bitCount) {
+    return new int[]{0, 1, bitCount - 1, bitCount};
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideSlices")
+  void testRotateLeftMatchesBitSetAlgorithm(int length, int startBit, int bitCount) {
+    for (int trial = 0; trial < 8; trial++) {
+      byte[] data = randomBytes(length);
+      for (int rotation : boundaryShifts(bitCount)) {
+        for (int signed : new int[]{rotation, -rotation}) {
+          byte[] original = data.clone();
+          assertArrayEquals(referenceRotateLeft(data, signed, startBit, bitCount),
+                  BitUtils.rotateLeft(data, signed, startBit, bitCount),
+                  "rotation " + signed);
+          assertArrayEquals(original, data);
+        }
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideSlices")
+  void testShiftLeftMatchesBitSetAlgorithm(int length, int startBit, int bitCount) {
+    for (int trial = 0; trial < 8; trial++) {
+      byte[] data = randomBytes(length);
+      for (int shift : boundaryShifts(bitCount)) {
+        assertArrayEquals(referenceShiftLeft(data, shift, startBit, bitCount),
+                BitUtils.shiftLeft(data, shift, startBit, bitCount),
+                "shift " + shift);
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 7, 28, 32, 48, 63, 64})
+  void testRotateLeftLong(int bitCount) {
+    for (int trial = 0; trial < 16; trial++) {
+      long value = random.nextLong();
+      long slice = bitCount == 64 ? value : value & ((1L << bitCount) - 1);
+      for (int rotation : boundaryShifts(bitCount)) {
+        for (int signed : new int[]{rotation, -rotation}) {
+          long expected = 0;
+          for (int bit = 0; bit < bitCount; bit++) {
+            if ((slice >>> bit & 1) != 0) {
+              expected |= 1L << Math.floorMod(bit + signed, bitCount);
+            }
+          }
+          // старшие биты за пределами среза на результат не влияют
+          assertEquals(expected, BitUtils.rotateLeft(value, signed, bitCount), "rotation " + signed);
+        }
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 7, 28, 32, 48, 63, 64})
+  void testShiftLeftLong(int bitCount) {
+    for (int trial = 0; trial < 16; trial++) {
+      long value = random.nextLong();
+      long slice = bitCount == 64 ? value : value & ((1L << bitCount) - 1);
+      for (int shift : boundaryShifts(bitCount)) {
+        long expected = 0;
+        for (int bit = 0; bit + shift < bitCount; bit++) {
+          if ((slice >>> bit & 1) != 0) {
+            expected |= 1L << (bit + shift);
+          }
+        }
+        assertEquals(expected, BitUtils.shiftLeft(slice, shift, bitCount), "shift " + shift);
+      }
+    }
+  }
+
+  @Test
+  void testRotateLeftIntTouchesOnlyItsWord() {
+    byte[] data = randomBytes(12);
+    for (int rotation : new int[]{0, 1, 31, 32, -1}) {
+      byte[] rotated = data.clone();
+      BitUtils.rotateLeftInt(rotated, 4, rotation);
+
+      ByteBuffer expected = ByteBuffer.wrap(data.clone());
+      expected.putInt(4, Integer.rotateLeft(expected.getInt(4), rotation));
+      assertArrayEquals(expected.array(), rotated, "rotation " + rotation);
+    }
+  }
+
+  @Test
+  void testLoadsAndStoresMatchByteBuffer() {
+    byte[] data = randomBytes(19);
+    ByteBuffer bigEndian = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+    ByteBuffer littleEndian = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+    // смещения не выровнены по размеру слова
+    for (int off = 0; off + 8 <= data.length; off++) {
+      assertEquals(bigEndian.getInt(off), BitUtils.bigEndianToInt(data, off));
+      assertEquals(littleEndian.getInt(off), BitUtils.littleEndianToInt(data, off));
+      assertEquals(bigEndian.getLong(off), BitUtils.bigEndianToLong(data, off));
+      for (int length = 0; length <= 8; length++) {
+        long expected = 0;
+        for (int i = 0; i < length; i++) {
+          expected = (expected << 8) | (data[off + i] & 0xFF);
+        }
+        assertEquals(expected, BitUtils.byteArrayToLong(data, off, length));
+      }
+    }
+
+    int intValue = random.nextInt();
+    long longValue = random.nextLong();
+    for (int off : new int[]{0, 3, 8}) {
+      byte[] out = new byte[16];
+      BitUtils.intToBigEndian(intValue, out, off);
+      assertArrayEquals(ByteBuffer.allocate(16).putInt(off, intValue).array(), out);
+
+      out = new byte[16];
+      BitUtils.intToLittleEndian(intValue, out, off);
+      assertArrayEquals(ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putInt(off, intValue).array(), out);
+
+      out = new byte[16];
+      BitUtils.longToBigEndian(longValue, out, off);
+      assertArrayEquals(ByteBuffer.allocate(16).putLong(off, longValue).array(), out);
+    }
+  }
+
+  @Test
+  void testLongToByteArrayRoundTrip() {
+    long value = random.nextLong();
+    for (int length = 1; length <= 8; length++) {
+      byte[] bytes = BitUtils.longToByteArray(value, length);
+      byte[] expected = new byte[length];
+      System.arraycopy(ByteBuffer.allocate(8).putLong(value).array(), 8 - length, expected, 0, length);
+      assertArrayEquals(expected, bytes);
+
+      long low = length == 8 ? value : value & ((1L << (8 * length)) - 1);
+      assertEquals(low, BitUtils.byteArrayToLong(bytes, 0, length));
+    }
+  }
+
+  @Test
+  void testXorWithOffsets() {
+    // длины по обе стороны 8-байтового шага и хвост, не кратный восьми
+    for (int length : new int[]{0, 1, 7, 8, 9, 16, 23}) {
+      byte[] a = randomBytes(length + 5);
+      byte[] b = randomBytes(length + 3);
+      byte[] out = randomBytes(length + 4);
+      byte[] expected = out.clone();
+      for (int i = 0; i < length; i++) {
+        expected[4 + i] = (byte) (a[5 + i] ^ b[3 + i]);
+      }
+
+      BitUtils.xor(a, 5, b, 3, out, 4, length);
+      assertArrayEquals(expected, out, "length " + length);
+    }
+  }
+
+  @Test
+  void testXorInPlace() {
+    byte[] a = randomBytes(21);
+    byte[] b = randomBytes(21);
+    byte[] expected = BitUtils.xor(a, b);
+    for (int i = 0; i < a.length; i++) {
+      assertEquals((byte) (a[i] ^ b[i]), expected[i]);
+    }
+
+    BitUtils.xor(a, 0, b, 0, a, 0, a.length);
+    assertArrayEquals(expected, a);
+  }
+
+  @Test
+  void testIntArrayConversions() {
+    byte[] data = randomBytes(20);
+    ByteBuffer bigEndian = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+    ByteBuffer littleEndian = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+
+    int[] words = BitUtils.byteArrayToIntArray(data);
+    int[] littleWords = BitUtils.byteArrayToLittleEndianArray(data);
+    for (int i = 0; i < words.length; i++) {
+      assertEquals(bigEndian.getInt(4 * i), words[i]);
+      assertEquals(littleEndian.getInt(4 * i), littleWords[i]);
+    }
+    assertArrayEquals(data, BitUtils.intArrayToByteArray(words));
+    assertArrayEquals(data, BitUtils.littleEndianArrayToByteArray(littleWords));
+
+    // смещённые варианты читают и пишут только свой участок
+    int[] partial = new int[5];
+    BitUtils.byteArrayToIntArray(data, 1, partial, 2, 3);
+    assertArrayEquals(new int[]{0, 0, bigEndian.getInt(1), bigEndian.getInt(5), bigEndian.getInt(9)}, partial);
+    BitUtils.byteArrayToLittleEndianArray(data, 1, partial, 1, 2);
+    assertEquals(littleEndian.getInt(1), partial[1]);
+    assertEquals(littleEndian.getInt(5), partial[2]);
+
+    byte[] out = new byte[14];
+    BitUtils.intArrayToByteArray(words, 1, out, 2, 3);
+    byte[] expected = new byte[14];
+    System.arraycopy(data, 4, expected, 2, 12);
+    assertArrayEquals(expected, out);
+
+    out = new byte[14];
+    BitUtils.littleEndianArrayToByteArray(littleWords, 1, out, 2, 3);
+    assertArrayEquals(expected, out);
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  /**
+   * Исходный алгоритм {@link BitUtils#rotateLeft(byte[], int, int, int)} через {@link BitSet}.
+   */
+  private static byte[] referenceRotateLeft(byte[] data, int rotation, int startBit, int bitCount) {
+    if (rotation < 0) {
+      rotation = bitCount + (rotation % bitCount);
+    }
+
+    data = BitUtils.reverseArray(data);
+    BitSet bits = BitSet.valueOf(data);
+    int totalBits = data.length * 8;
+    BitSet rotated = new BitSet(totalBits);
+
+    for (int i = 0; i < totalBits; i++) {
+      rotated.set(i, bits.get(i));
+    }
+
+    int lowerBound = totalBits - bitCount - startBit;
+
+    for (int i = 0; i < bitCount; i++) {
+      int originalIndex = lowerBound + (i % bitCount);
+      int rotatedIndex = lowerBound + ((i + rotation) % bitCount);
+      rotated.set(rotatedIndex, bits.get(originalIndex));
+    }
+
+    return toBigEndianBytes(rotated, totalBits);
+  }
+
+  /**
+   * Исходный алгоритм {@link BitUtils#shiftLeft(byte[], int, int, int)} через {@link BitSet}.
+   */
+  private static byte[] referenceShiftLeft(byte[] data, int shift, int startBit, int bitCount) {
+    data = BitUtils.reverseArray(data);
+    BitSet bits = BitSet.valueOf(data);
+    int totalBits = data.length * 8;
+    BitSet shifted = new BitSet(totalBits);
+
+    int lowerBound = totalBits - bitCount - startBit;
+
+    for (int i = 0; i < bitCount; i++) {
+      int originalIndex = lowerBound + i;
+      int shiftedIndex = originalIndex + shift;
+
+      if (shiftedIndex < lowerBound + bitCount) {
+        shifted.set(shiftedIndex, bits.get(originalIndex));
+      }
+    }
+
+    return toBigEndianBytes(shifted, totalBits);
+  }
+
+  private static byte[] toBigEndianBytes(BitSet bits, int totalBits) {
+    byte[] result = new byte[(totalBits + 7) / 8];
+    for (int i = 0; i < totalBits; i++) {
+      if (bits.get(i)) {
+        result[i / 8] |= (byte) (1 << (i % 8));
+      }
+    }
+    return BitUtils.reverseArray(result);
+  }
+}